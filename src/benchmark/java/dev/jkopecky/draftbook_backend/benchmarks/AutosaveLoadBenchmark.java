@@ -0,0 +1,161 @@
+package dev.jkopecky.draftbook_backend.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.jkopecky.draftbook_backend.data.tables.Account;
+import dev.jkopecky.draftbook_backend.data.tables.AccountRepository;
+import dev.jkopecky.draftbook_backend.data.tables.Work;
+import dev.jkopecky.draftbook_backend.data.tables.WorkRepository;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AutosaveLoadBenchmark {
+    //  Throughput and latency of many clients autosaving at once, with request handling on Tomcat's platform thread
+    //  pool and then on virtual threads (spring.threads.virtual.enabled). Each run boots the application on a random
+    //  port against an in-memory H2 database and a temp data root, gives every client its own account, work and
+    //  chapter, and then has all clients save their chapter back to back.
+    //
+    //  mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=dev.jkopecky.draftbook_backend.benchmarks.AutosaveLoadBenchmark
+    //  Tunables, as system properties through -Dbenchmark.jvmArgs: clients (500), saves (40 per client),
+    //  chapterBytes (20000), thinkMs (0)
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+
+
+    public static void main(String[] args) throws Exception {
+        int clients = Integer.getInteger("clients", 500);
+        int saves = Integer.getInteger("saves", 40);
+        int chapterBytes = Integer.getInteger("chapterBytes", 20000);
+        int thinkMillis = Integer.getInteger("thinkMs", 0);
+
+        System.out.printf("%d clients x %d saves of %d bytes, %d ms think time%n", clients, saves, chapterBytes, thinkMillis);
+        System.out.printf("%-10s %12s %10s %10s %10s %8s%n", "mode", "saves/s", "p50 ms", "p99 ms", "max ms", "errors");
+        for (boolean virtual : new boolean[] {false, true}) {
+            Result result = run(virtual, clients, saves, chapterBytes, thinkMillis);
+            System.out.printf("%-10s %12.0f %10.2f %10.2f %10.2f %8d%n", virtual ? "virtual" : "platform",
+                    result.throughput(), result.percentile(50), result.percentile(99), result.percentile(100), result.errors());
+        }
+    }
+
+
+
+    record Result(double throughput, long[] latencyNanos, int errors) {
+        double percentile(int p) {
+            if (latencyNanos.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(p / 100.0 * latencyNanos.length) - 1;
+            return latencyNanos[Math.max(index, 0)] / 1_000_000.0;
+        }
+    }
+
+
+
+    static Result run(boolean virtual, int clients, int saves, int chapterBytes, int thinkMillis) throws Exception {
+        ConfigurableApplicationContext context = BenchmarkApplication.start("load_" + virtual, true,
+                "spring.threads.virtual.enabled=" + virtual,
+                "spring.datasource.hikari.maximum-pool-size=20",
+                "server.tomcat.threads.max=200",
+                "server.tomcat.max-connections=" + (clients * 2));
+        ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor(); //so the load generator is never the limit
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String base = "http://localhost:" + port;
+            HttpClient http = HttpClient.newBuilder().executor(clientThreads).connectTimeout(Duration.ofSeconds(30)).build();
+            String content = "<p>" + "a".repeat(Math.max(chapterBytes - 7, 0)) + "</p>";
+
+            //set up one account, work and chapter per client
+            List<String> tokens = new ArrayList<>();
+            List<String> targets = new ArrayList<>();
+            AccountRepository accountRepository = context.getBean(AccountRepository.class);
+            WorkRepository workRepository = context.getBean(WorkRepository.class);
+            for (int i = 0; i < clients; i++) {
+                String username = "writer" + i;
+                HashMap<String, Object> credentials = new HashMap<>();
+                credentials.put("username", username);
+                credentials.put("password", "password" + i);
+                String created = post(http, base + "/api/auth/create", MAPPER.writeValueAsString(credentials), null).body();
+                String token = MAPPER.readTree(created).get("token").asText();
+
+                Account account = Account.getByUsername(username, accountRepository);
+                Work.createWork(account, "Work " + i, workRepository);
+                String target = workRepository.findByAccountId(account.getId()).get(0).toResource();
+
+                post(http, base + "/api/works/chapters/create?target=" + target, "{\"chaptername\":\"One\",\"chapternumber\":\"1\"}", token);
+                tokens.add(token);
+                targets.add(target);
+            }
+
+            //every client saves as fast as it can, all starting together
+            long[][] latencies = new long[clients][];
+            AtomicInteger errors = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                int client = i;
+                running.add(clientThreads.submit(() -> {
+                    long[] timings = new long[saves];
+                    HashMap<String, Object> body = new HashMap<>();
+                    body.put("chaptername", "One");
+                    body.put("notes", "");
+                    start.await();
+                    for (int s = 0; s < saves; s++) {
+                        body.put("content", content + s);
+                        long began = System.nanoTime();
+                        HttpResponse<String> response = post(http, base + "/api/works/chapters/save?target=" + targets.get(client),
+                                MAPPER.writeValueAsString(body), tokens.get(client));
+                        timings[s] = System.nanoTime() - began;
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                        if (thinkMillis > 0) {
+                            Thread.sleep(thinkMillis);
+                        }
+                    }
+                    latencies[client] = timings;
+                    return null;
+                }));
+            }
+
+            long began = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : running) {
+                future.get();
+            }
+            double seconds = (System.nanoTime() - began) / 1e9;
+
+            long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+            return new Result(all.length / seconds, all, errors.get());
+        } finally {
+            clientThreads.shutdownNow();
+            context.close();
+        }
+    }
+
+
+
+    private static HttpResponse<String> post(HttpClient http, String url, String body, String token) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (token != null) {
+            request.header("Cookie", "token=" + token);
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
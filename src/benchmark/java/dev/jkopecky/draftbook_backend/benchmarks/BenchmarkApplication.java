@@ -0,0 +1,45 @@
+package dev.jkopecky.draftbook_backend.benchmarks;
+
+import dev.jkopecky.draftbook_backend.DraftbookBackendApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+final class BenchmarkApplication {
+    //  Boots the application the way the benchmarks need it: an in-memory H2 database named after the benchmark,
+    //  and a fresh temp directory as the data root, so nothing touches MySQL or the real draftbook_data.
+
+    private BenchmarkApplication() {
+    }
+
+
+
+    static ConfigurableApplicationContext start(String name, boolean web, String... properties) throws IOException {
+        Path root = Files.createTempDirectory("draftbook-" + name);
+        System.setProperty("user.home", root + "/"); //retrieveRoot() appends draftbook_data/ to it
+
+        List<String> all = new ArrayList<>(List.of(
+                "spring.datasource.url=jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1",
+                "spring.jpa.hibernate.ddl-auto=create-drop",
+                "spring.jpa.properties.hibernate.jdbc.batch_size=500",
+                "spring.jpa.properties.hibernate.order_inserts=true",
+                "draftbook.storage.compression-migrate=false",
+                "logging.level.root=warn"));
+        if (web) {
+            all.add("server.port=0");
+        }
+        all.addAll(Arrays.asList(properties));
+
+        return new SpringApplicationBuilder(DraftbookBackendApplication.class)
+                .web(web ? WebApplicationType.SERVLET : WebApplicationType.NONE)
+                .properties(all.toArray(new String[0]))
+                .run();
+    }
+}
@@ -0,0 +1,99 @@
+package dev.jkopecky.draftbook_backend.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.jkopecky.draftbook_backend.data.storage.ChapterContentStore;
+import dev.jkopecky.draftbook_backend.data.storage.ContentStoreConfig;
+import dev.jkopecky.draftbook_backend.data.tables.Chapter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChapterContentBenchmark {
+    //  Chapter reads and writes through the content store, built by ContentStoreConfig as the application would:
+    //      - file: plain files, no cache
+    //      - deflate: compressed files, no cache
+    //      - cached: plain files behind the default 64MB cache
+    //  selectAsJson and stream compare the select endpoint's String + HashMap + Jackson path with the stream
+    //  endpoint's; run with -prof gc to see the difference in bytes allocated per operation.
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Param({"file", "deflate", "cached"})
+    String store;
+
+    @Param({"4096", "262144"})
+    int size;
+
+    private ChapterContentStore contentStore;
+    private Chapter chapter;
+    private String content;
+
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path root = Files.createTempDirectory("draftbook-content");
+        contentStore = new ContentStoreConfig().chapterContentStore("file", "none", 2000,
+                store.equals("deflate") ? "deflate" : "none", 1, 512, 0,
+                store.equals("cached") ? 67108864 : 0, new SimpleMeterRegistry());
+
+        chapter = new Chapter();
+        chapter.setTitle("Chapter One");
+        chapter.setPath(root + "/chapters/");
+        content = SampleText.html(size);
+        chapter.writeHTML(content, contentStore);
+        chapter.writeNotes("<p>Remember the letter.</p>", contentStore);
+    }
+
+
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        contentStore.close();
+    }
+
+
+
+    @Benchmark
+    public String read() throws IOException {
+        return chapter.retrieveAsHTML(contentStore);
+    }
+
+
+
+    @Benchmark
+    public void write() throws IOException {
+        chapter.writeHTML(content, contentStore);
+    }
+
+
+
+    @Benchmark
+    public void selectAsJson() throws IOException {
+        HashMap<String, Object> response = new HashMap<>();
+        response.put("content", chapter.retrieveAsHTML(contentStore));
+        response.put("notes", chapter.readNotes(contentStore));
+        response.put("title", chapter.getTitle());
+        response.put("error", "none");
+        MAPPER.writeValue(OutputStream.nullOutputStream(), response);
+    }
+
+
+
+    @Benchmark
+    public void stream() throws IOException {
+        chapter.transferHTML(OutputStream.nullOutputStream(), contentStore);
+    }
+}
@@ -0,0 +1,55 @@
+package dev.jkopecky.draftbook_backend.benchmarks;
+
+import dev.jkopecky.draftbook_backend.data.storage.CompressingContentStore;
+import dev.jkopecky.draftbook_backend.data.storage.InMemoryContentStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+    //  CPU cost of compressing chapter content at each deflate level, and of reading it back.
+    //  The space saved is printed once per trial, since JMH only reports times.
+
+    @Param({"1", "6", "9"})
+    int level;
+
+    @Param({"4096", "65536", "1048576"})
+    int size;
+
+    private CompressingContentStore compressor;
+    private byte[] plain;
+    private byte[] stored;
+
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        compressor = new CompressingContentStore(new InMemoryContentStore(), level, 512);
+        plain = SampleText.html(size).getBytes(StandardCharsets.UTF_8);
+        stored = compressor.encode(plain);
+        System.out.printf("%nlevel %d, %d bytes: stored as %d bytes, %.1f%% saved%n",
+                level, plain.length, stored.length, 100.0 * (plain.length - stored.length) / plain.length);
+    }
+
+
+
+    @Benchmark
+    public byte[] encode() {
+        return compressor.encode(plain);
+    }
+
+
+
+    @Benchmark
+    public byte[] decode() throws IOException {
+        return CompressingContentStore.decode(stored);
+    }
+}
@@ -0,0 +1,125 @@
+package dev.jkopecky.draftbook_backend.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.jkopecky.draftbook_backend.web.CachedBodyFilter;
+import dev.jkopecky.draftbook_backend.web.requests.SaveChapterRequest;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestParsingBenchmark {
+    //  Binding a chapter save body, starting from the servlet request's input stream. Run with -prof gc to compare
+    //  gc.alloc.rate.norm, the bytes allocated per request:
+    //      stringBodyTree     - how the controllers used to do it: read the stream into a String, build a new
+    //                           ObjectMapper, readTree, then asText on each field.
+    //      sharedMapperTree   - the same with one mapper for all requests.
+    //      typedRequest       - how they do it now, for a request with a token cookie: CachedBodyFilter passes it
+    //                           through and Spring's JSON converter binds the stream into a request record.
+    //      typedRequestBodyToken - the same for a request that carries its token in the body instead, which
+    //                           CachedBodyFilter buffers in full before the record is bound from the copy.
+
+    private static final ObjectMapper SHARED_MAPPER = Jackson2ObjectMapperBuilder.json().build(); //configured like Boot's
+    private static final MappingJackson2HttpMessageConverter CONVERTER = new MappingJackson2HttpMessageConverter(SHARED_MAPPER);
+    private static final CachedBodyFilter FILTER = new CachedBodyFilter();
+
+    @Param({"4096", "262144"})
+    int size;
+
+    private byte[] body;
+
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        HashMap<String, Object> save = new HashMap<>();
+        save.put("token", "0123456789abcdef0123456789abcdef");
+        save.put("chaptername", "Chapter One");
+        save.put("content", SampleText.html(size));
+        save.put("notes", "<p>Remember the letter.</p>");
+        body = SHARED_MAPPER.writeValueAsBytes(save);
+    }
+
+
+
+    private MockHttpServletRequest request(boolean tokenCookie) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/works/chapters/save");
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.setContent(body);
+        if (tokenCookie) {
+            request.setCookies(new Cookie("token", "0123456789abcdef0123456789abcdef"));
+        }
+        return request;
+    }
+
+
+
+    private void bindThroughFilter(HttpServletRequest request, Blackhole blackhole) throws IOException, ServletException {
+        FilterChain handler = (filtered, response) -> {
+            SaveChapterRequest save = (SaveChapterRequest) CONVERTER.read(SaveChapterRequest.class,
+                    new ServletServerHttpRequest((HttpServletRequest) filtered));
+            blackhole.consume(save.chapterName());
+            blackhole.consume(save.content());
+            blackhole.consume(save.notes());
+        };
+        FILTER.doFilter(request, new MockHttpServletResponse(), handler);
+    }
+
+
+
+    @Benchmark
+    public void stringBodyTree(Blackhole blackhole) throws IOException {
+        String data = StreamUtils.copyToString(request(true).getInputStream(), StandardCharsets.UTF_8);
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode node = mapper.readTree(data);
+        blackhole.consume(node.get("chaptername").asText());
+        blackhole.consume(node.get("content").asText());
+        blackhole.consume(node.get("notes").asText());
+    }
+
+
+
+    @Benchmark
+    public void sharedMapperTree(Blackhole blackhole) throws IOException {
+        String data = StreamUtils.copyToString(request(true).getInputStream(), StandardCharsets.UTF_8);
+        JsonNode node = SHARED_MAPPER.readTree(data);
+        blackhole.consume(node.get("chaptername").asText());
+        blackhole.consume(node.get("content").asText());
+        blackhole.consume(node.get("notes").asText());
+    }
+
+
+
+    @Benchmark
+    public void typedRequest(Blackhole blackhole) throws IOException, ServletException {
+        bindThroughFilter(request(true), blackhole);
+    }
+
+
+
+    @Benchmark
+    public void typedRequestBodyToken(Blackhole blackhole) throws IOException, ServletException {
+        bindThroughFilter(request(false), blackhole);
+    }
+}
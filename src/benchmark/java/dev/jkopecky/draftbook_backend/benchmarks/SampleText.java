@@ -0,0 +1,37 @@
+package dev.jkopecky.draftbook_backend.benchmarks;
+
+import java.util.Random;
+
+final class SampleText {
+    //  Chapter-like HTML for the content benchmarks: paragraphs of words drawn from a small vocabulary, seeded so
+    //  every run and every fork compresses the same way.
+
+    private static final String[] WORDS = ("the a and of to in was he she it that her his they had with for on at as but not " +
+            "said night rain door window letter castle forest river storm quietly suddenly remembered whispered " +
+            "Harry Hermione Ron dragon candle morning shadow stairs garden silver ancient promise").split(" ");
+
+    private SampleText() {
+    }
+
+
+
+    static String html(int bytes) {
+        Random random = new Random(bytes);
+        StringBuilder html = new StringBuilder(bytes + 64);
+        while (html.length() < bytes) {
+            html.append("<p>");
+            int sentences = 2 + random.nextInt(5);
+            for (int s = 0; s < sentences; s++) {
+                int words = 6 + random.nextInt(14);
+                for (int w = 0; w < words; w++) {
+                    String word = WORDS[random.nextInt(WORDS.length)];
+                    html.append(w == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+                    html.append(w == words - 1 ? ". " : " ");
+                }
+            }
+            html.append("</p>\n");
+        }
+        html.setLength(bytes);
+        return html.toString();
+    }
+}
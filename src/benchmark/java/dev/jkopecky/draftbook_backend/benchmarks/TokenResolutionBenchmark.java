@@ -0,0 +1,117 @@
+package dev.jkopecky.draftbook_backend.benchmarks;
+
+import dev.jkopecky.draftbook_backend.controllers.AuthenticationController;
+import dev.jkopecky.draftbook_backend.data.SignedTokenCodec;
+import dev.jkopecky.draftbook_backend.data.tables.Account;
+import dev.jkopecky.draftbook_backend.data.tables.AccountRepository;
+import dev.jkopecky.draftbook_backend.data.tables.AuthToken;
+import dev.jkopecky.draftbook_backend.data.tables.AuthTokenRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenResolutionBenchmark {
+    //  AuthenticationController.getByToken, which every authenticated request goes through, along its three paths:
+    //  a token in the in-memory cache, a table token that has to be looked up, and a stateless signed token.
+    //  Also login and the username lookups behind it and account creation, against a table of the given size;
+    //  the indexed lookups should stay flat from a thousand accounts up to a million.
+
+    @Param({"1000", "100000", "1000000"})
+    int accounts;
+
+    private ConfigurableApplicationContext context;
+    private AccountRepository accountRepository;
+    private AuthTokenRepository authTokenRepository;
+    private SignedTokenCodec disabledCodec;
+    private SignedTokenCodec signedCodec;
+    private String tableToken;
+    private String signedToken;
+
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.start("tokens_" + accounts, false);
+        accountRepository = context.getBean(AccountRepository.class);
+        authTokenRepository = context.getBean(AuthTokenRepository.class);
+        disabledCodec = context.getBean(SignedTokenCodec.class);
+        signedCodec = new SignedTokenCodec(true, "");
+
+        List<Account> batch = new ArrayList<>();
+        for (int i = 0; i < accounts; i++) {
+            Account account = new Account();
+            account.setUsername("writer" + i);
+            account.setPassword("password" + i);
+            batch.add(account);
+            if (batch.size() == 5000 || i == accounts - 1) {
+                accountRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+
+        Account account = Account.getByUsername("writer0", accountRepository);
+        tableToken = new AuthToken(account, authTokenRepository).getValue();
+        signedToken = signedCodec.issue(account);
+    }
+
+
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+
+
+    @Benchmark
+    public Account cachedTableToken() throws Exception {
+        return AuthenticationController.getByToken(tableToken, authTokenRepository, disabledCodec);
+    }
+
+
+
+    @Benchmark
+    public Account uncachedTableToken() throws Exception {
+        AuthenticationController.invalidateToken(tableToken);
+        return AuthenticationController.getByToken(tableToken, authTokenRepository, disabledCodec);
+    }
+
+
+
+    @Benchmark
+    public Account signedToken() throws Exception {
+        return AuthenticationController.getByToken(signedToken, authTokenRepository, signedCodec);
+    }
+
+
+
+    @Benchmark
+    public Account usernameLookup() {
+        return Account.getByUsername("writer" + ThreadLocalRandom.current().nextInt(accounts), accountRepository);
+    }
+
+
+
+    @Benchmark
+    public Account authenticate() {
+        int i = ThreadLocalRandom.current().nextInt(accounts);
+        return Account.authenticate("writer" + i, "password" + i, accountRepository);
+    }
+
+
+
+    @Benchmark
+    public boolean usernameExists() {
+        return Account.exists("writer" + ThreadLocalRandom.current().nextInt(accounts * 2), accountRepository);
+    }
+}
@@ -0,0 +1,131 @@
+package dev.jkopecky.draftbook_backend.benchmarks;
+
+import dev.jkopecky.draftbook_backend.data.tables.*;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkChaptersBenchmark {
+    //  Listing a work's chapters and an account's works, with the whole chapter table as large as a busy instance's.
+    //  The defaults give 100 to 10000 works of 100 chapters, 10k to 1M chapter rows in total, spread over 100 accounts.
+    //  Listing one work's chapters goes through the (work_id, number) index, so it should cost the same at every size.
+    //  reorderChapters reverses a whole work's chapter order, the single update behind /api/works/chapters/reorder.
+
+    @Param({"100", "1000", "10000"})
+    int works;
+
+    @Param({"100"})
+    int chaptersPerWork;
+
+    private ConfigurableApplicationContext context;
+    private ChapterRepository chapterRepository;
+    private WorkRepository workRepository;
+    private List<Work> allWorks;
+    private List<Account> allAccounts;
+
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.start("chapters_" + works + "_" + chaptersPerWork, false);
+        AccountRepository accountRepository = context.getBean(AccountRepository.class);
+        workRepository = context.getBean(WorkRepository.class);
+        chapterRepository = context.getBean(ChapterRepository.class);
+
+        allAccounts = new ArrayList<>();
+        for (int i = 0; i < Math.max(works / 10, 1); i++) {
+            Account account = new Account();
+            account.setUsername("writer" + i);
+            account.setPassword("password");
+            allAccounts.add(account);
+        }
+        accountRepository.saveAll(allAccounts);
+
+        allWorks = new ArrayList<>();
+        for (int i = 0; i < works; i++) {
+            Work work = new Work();
+            work.setTitle("Work " + i);
+            work.setAccount(allAccounts.get(i % allAccounts.size()));
+            work.setPath("/tmp/unused/" + i + "/");
+            allWorks.add(work);
+        }
+        workRepository.saveAll(allWorks);
+
+        //inserted in reverse order, so the listing cannot lean on insertion order for its sort
+        List<Chapter> batch = new ArrayList<>();
+        for (Work work : allWorks) {
+            for (int n = chaptersPerWork; n >= 1; n--) {
+                Chapter chapter = new Chapter();
+                chapter.setTitle("Chapter " + n);
+                chapter.setNumber(n);
+                chapter.setWork(work);
+                chapter.buildPath();
+                batch.add(chapter);
+            }
+            if (batch.size() >= 5000) {
+                chapterRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        chapterRepository.saveAll(batch);
+    }
+
+
+
+    @State(Scope.Thread)
+    public static class Reorder {
+        Work work;
+        List<Integer> order;
+
+        @Setup(Level.Invocation)
+        public void pick(WorkChaptersBenchmark benchmark) {
+            work = benchmark.allWorks.get(ThreadLocalRandom.current().nextInt(benchmark.works));
+            order = benchmark.chapterRepository.findIdsByWorkId(work.getId()).reversed();
+        }
+    }
+
+
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+
+
+    @Benchmark
+    public ArrayList<Chapter> getChapters() {
+        return allWorks.get(ThreadLocalRandom.current().nextInt(works)).getChapters(chapterRepository);
+    }
+
+
+
+    @Benchmark
+    public List<ChapterSummary> getChapterSummaries() {
+        return allWorks.get(ThreadLocalRandom.current().nextInt(works)).getChapterSummaries(chapterRepository);
+    }
+
+
+
+    @Benchmark
+    public void reorderChapters(Reorder reorder) {
+        reorder.work.applyChapterOrder(reorder.order, chapterRepository);
+    }
+
+
+
+    @Benchmark
+    public ArrayList<Work> getOwnedWorks() {
+        return allAccounts.get(ThreadLocalRandom.current().nextInt(allAccounts.size())).getOwnedWorks(workRepository);
+    }
+}
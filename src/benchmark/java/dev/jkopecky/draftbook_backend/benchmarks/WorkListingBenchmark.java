@@ -0,0 +1,118 @@
+package dev.jkopecky.draftbook_backend.benchmarks;
+
+import dev.jkopecky.draftbook_backend.data.tables.*;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkListingBenchmark {
+    //  The works listing of one prolific account, 20 works a page. firstPage and deepPage (page 500, after 9980 works)
+    //  should cost the same: both seek in the (account_id, updated_at, id) index and read one page of rows.
+    //  getOwnedWorks, the old full list, is there for scale.
+
+    private static final int PAGE = 20;
+
+    @Param({"20000"})
+    int works;
+
+    @Param({"5"})
+    int chaptersPerWork;
+
+    private ConfigurableApplicationContext context;
+    private WorkRepository workRepository;
+    private Account account;
+    private WorkListing.Cursor page500;
+
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.start("listing_" + works + "_" + chaptersPerWork, false);
+        AccountRepository accountRepository = context.getBean(AccountRepository.class);
+        workRepository = context.getBean(WorkRepository.class);
+        ChapterRepository chapterRepository = context.getBean(ChapterRepository.class);
+
+        account = new Account();
+        account.setUsername("prolific");
+        account.setPassword("password");
+        accountRepository.save(account);
+        Account other = new Account();
+        other.setUsername("other");
+        other.setPassword("password");
+        accountRepository.save(other);
+
+        Instant base = Instant.parse("2026-01-01T00:00:00Z");
+        List<Work> batch = new ArrayList<>();
+        List<Chapter> chapters = new ArrayList<>();
+        for (int i = 0; i < works * 2; i++) {
+            Work work = new Work();
+            work.setTitle("Work " + i);
+            work.setAccount(i % 2 == 0 ? account : other);
+            work.setPath("/tmp/unused/" + i + "/");
+            work.setUpdatedAt(base.plusSeconds(i));
+            batch.add(work);
+            if (batch.size() >= 2000) {
+                workRepository.saveAll(batch);
+                for (Work saved : batch) {
+                    for (int n = 1; n <= chaptersPerWork; n++) {
+                        Chapter chapter = new Chapter();
+                        chapter.setTitle("Chapter " + n);
+                        chapter.setNumber(n);
+                        chapter.setWork(saved);
+                        chapter.setWordCount(1000 + n);
+                        chapters.add(chapter);
+                    }
+                }
+                chapterRepository.saveAll(chapters);
+                batch.clear();
+                chapters.clear();
+            }
+        }
+        workRepository.saveAll(batch);
+
+        //walk to page 500 once, the way a client would
+        WorkListing.Cursor cursor = null;
+        for (int page = 1; page < 500; page++) {
+            cursor = Work.listForAccount(account, cursor, PAGE, workRepository).getLast().cursor();
+        }
+        page500 = cursor;
+    }
+
+
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+
+
+    @Benchmark
+    public List<WorkListing> firstPage() {
+        return Work.listForAccount(account, null, PAGE, workRepository);
+    }
+
+
+
+    @Benchmark
+    public List<WorkListing> deepPage() {
+        return Work.listForAccount(account, page500, PAGE, workRepository);
+    }
+
+
+
+    @Benchmark
+    public ArrayList<Work> getOwnedWorks() {
+        return account.getOwnedWorks(workRepository);
+    }
+}
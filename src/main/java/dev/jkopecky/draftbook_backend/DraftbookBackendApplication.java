@@ -2,12 +2,19 @@ package dev.jkopecky.draftbook_backend;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.Map;
 
 @SpringBootApplication
+@EnableScheduling
 public class DraftbookBackendApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(DraftbookBackendApplication.class, args);
+        SpringApplication application = new SpringApplication(DraftbookBackendApplication.class);
+        //lowest precedence, so a deployment's own configuration can narrow or widen what the actuator exposes.
+        application.setDefaultProperties(Map.of("management.endpoints.web.exposure.include", "health,metrics"));
+        application.run(args);
     }
 
     public static String retrieveRoot() {
@@ -1,21 +1,202 @@
 package dev.jkopecky.draftbook_backend;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 
 public class Log {
+    //  Logging facade over java.util.logging. A caller only pays for a level check and a queue offer: messages are
+    //  handed to a bounded ring buffer and formatted, published and given their stack traces on a single writer
+    //  thread. When the buffer is full the overflow policy decides:
+    //      - DROP (default): the message is counted and discarded, so an error storm never slows down requests.
+    //        The writer reports how many were dropped once it catches up.
+    //      - BLOCK: the caller waits for room, nothing is lost.
+    //  Message suppliers run on the writer thread, so they should only capture values that will not change.
+
+    public enum Overflow { DROP, BLOCK }
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    private static final int WRITE_BATCH = 256;
 
     private static final Logger logger = Logger.getLogger(Log.class.getName());
+    private static final Object writeLock = new Object(); //held while publishing, so flush() and the writer never interleave
+    //producers share it while adding to the buffer, configure() takes it exclusively to swap the buffer,
+    //so nothing can be added to a buffer after it has been drained into its replacement.
+    private static final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private static final AtomicLong dropped = new AtomicLong(); //since startup
+    private static final AtomicLong unreported = new AtomicLong(); //dropped since the writer last said so
+    private static volatile ArrayBlockingQueue<Entry> buffer = new ArrayBlockingQueue<>(DEFAULT_CAPACITY);
+    private static volatile Overflow overflow = Overflow.DROP;
+
+    private record Entry(Level level, Supplier<String> message, String source, Throwable thrown, long millis, long threadId) {}
+
+    //left in a retired buffer, so a writer still waiting on it moves on to the new one at once.
+    private static final Entry WAKE = new Entry(Level.OFF, () -> "", "Log", null, 0, 0);
+
+    static {
+        Thread writer = new Thread(Log::write, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::flush, "log-flush"));
+    }
+
+
 
     public static void create(String message, String source, String severity, Throwable causingException) {
-        switch (severity) {
-            case "error": logger.severe("Error in " + source + " : " + message); break;
-            case "warn": logger.warning("Warning in " + source + " : " + message); break;
-            case "info": logger.info("Info from " + source + " : " + message); break;
-            default: logger.fine("Debug from " + source + " : " + message); break;
+        Level level = toLevel(severity);
+        if (logger.isLoggable(level)) {
+            enqueue(new Entry(level, () -> message, source, causingException, System.currentTimeMillis(), Thread.currentThread().threadId()));
+        }
+    }
+
+
+
+    //the message is only built if the severity is enabled, and then off the caller's thread.
+    public static void create(Supplier<String> message, String source, String severity, Throwable causingException) {
+        Level level = toLevel(severity);
+        if (logger.isLoggable(level)) {
+            enqueue(new Entry(level, message, source, causingException, System.currentTimeMillis(), Thread.currentThread().threadId()));
+        }
+    }
+
+
+
+    public static boolean isEnabled(String severity) {
+        return logger.isLoggable(toLevel(severity));
+    }
+
+
+
+    //swaps in a buffer of the given size, moving over anything still queued.
+    public static void configure(int capacity, Overflow overflowPolicy) {
+        swapLock.writeLock().lock();
+        try {
+            overflow = overflowPolicy;
+            if (capacity != buffer.remainingCapacity() + buffer.size()) {
+                ArrayBlockingQueue<Entry> previous = buffer;
+                buffer = new ArrayBlockingQueue<>(Math.max(capacity, previous.size()));
+                previous.drainTo(buffer);
+                previous.offer(WAKE);
+            }
+        } finally {
+            swapLock.writeLock().unlock();
         }
-        if (causingException != null) {
-            logger.finest("Logging stack trace...");
-            causingException.printStackTrace();
+    }
+
+
+
+    //publishes everything queued so far on the calling thread, used on shutdown and by tests.
+    public static void flush() {
+        synchronized (writeLock) {
+            List<Entry> pending = new ArrayList<>();
+            buffer.drainTo(pending);
+            pending.forEach(Log::publish);
+            reportDropped();
         }
     }
+
+
+
+    public static long droppedCount() {
+        return dropped.get();
+    }
+
+
+
+    private static void enqueue(Entry entry) {
+        swapLock.readLock().lock();
+        try {
+            if (overflow == Overflow.BLOCK) {
+                try {
+                    buffer.put(entry);
+                    return;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt(); //fall through and drop it rather than swallow the interrupt
+                }
+            } else if (buffer.offer(entry)) {
+                return;
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+        dropped.incrementAndGet();
+        unreported.incrementAndGet();
+    }
+
+
+
+    private static void write() {
+        List<Entry> batch = new ArrayList<>(WRITE_BATCH);
+        while (true) {
+            try {
+                Entry first = buffer.poll(1, TimeUnit.SECONDS);
+                if (first == null || first == WAKE) {
+                    continue;
+                }
+                synchronized (writeLock) {
+                    publish(first);
+                    buffer.drainTo(batch, WRITE_BATCH);
+                    batch.forEach(Log::publish);
+                    batch.clear();
+                    reportDropped();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) { //a broken handler must not stop the writer
+                batch.clear();
+            }
+        }
+    }
+
+
+
+    private static void publish(Entry entry) {
+        String message;
+        try {
+            message = entry.message().get();
+        } catch (RuntimeException e) {
+            message = "(message failed to build: " + e + ")";
+        }
+
+        String prefix = switch (entry.level().getName()) {
+            case "SEVERE" -> "Error in ";
+            case "WARNING" -> "Warning in ";
+            case "INFO" -> "Info from ";
+            default -> "Debug from ";
+        };
+        LogRecord record = new LogRecord(entry.level(), prefix + entry.source() + " : " + message);
+        record.setLoggerName(logger.getName());
+        record.setInstant(Instant.ofEpochMilli(entry.millis()));
+        record.setLongThreadID(entry.threadId());
+        record.setThrown(entry.thrown());
+        logger.log(record);
+    }
+
+
+
+    private static void reportDropped() {
+        long count = unreported.getAndSet(0);
+        if (count > 0) {
+            logger.warning("Warning in Log : dropped " + count + " log messages while the log buffer was full.");
+        }
+    }
+
+
+
+    private static Level toLevel(String severity) {
+        return switch (severity) {
+            case "error" -> Level.SEVERE;
+            case "warn" -> Level.WARNING;
+            case "info" -> Level.INFO;
+            default -> Level.FINE;
+        };
+    }
 }
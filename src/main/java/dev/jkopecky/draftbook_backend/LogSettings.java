@@ -0,0 +1,21 @@
+package dev.jkopecky.draftbook_backend;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class LogSettings {
+    //  Applies the draftbook.log.* properties to the static Log facade once the application starts.
+    //  Until then it runs with its defaults.
+
+    public LogSettings(@Value("${draftbook.log.buffer-size:" + Log.DEFAULT_CAPACITY + "}") int bufferSize,
+                       @Value("${draftbook.log.overflow:drop}") String overflow,
+                       MeterRegistry meterRegistry) {
+        Log.configure(bufferSize, Log.Overflow.valueOf(overflow.toUpperCase()));
+        FunctionCounter.builder("draftbook.log.dropped", Log.class, ignored -> Log.droppedCount())
+                .description("Log messages dropped because the log buffer was full")
+                .register(meterRegistry);
+    }
+}
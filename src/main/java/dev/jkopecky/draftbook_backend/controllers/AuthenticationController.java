@@ -1,16 +1,20 @@
 package dev.jkopecky.draftbook_backend.controllers;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import dev.jkopecky.draftbook_backend.Log;
+import dev.jkopecky.draftbook_backend.data.SignedTokenCodec;
+import dev.jkopecky.draftbook_backend.data.TokenCache;
 import dev.jkopecky.draftbook_backend.data.tables.Account;
 import dev.jkopecky.draftbook_backend.data.tables.AccountRepository;
 import dev.jkopecky.draftbook_backend.data.tables.AuthToken;
 import dev.jkopecky.draftbook_backend.data.tables.AuthTokenRepository;
+import dev.jkopecky.draftbook_backend.web.requests.CredentialsRequest;
+import dev.jkopecky.draftbook_backend.web.requests.UsernameRequest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.CookieValue;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -25,49 +29,77 @@ public class AuthenticationController {
 
 
 
+    public static final int TOKEN_CACHE_CAPACITY = 10000;
+    private static final TokenCache tokenCache = new TokenCache(TOKEN_CACHE_CAPACITY, AuthToken.TOKEN_LIFETIME_SECONDS);
+
+
+
     AccountRepository accountRepository;
     AuthTokenRepository authTokenRepository;
-    public AuthenticationController(AccountRepository accountRepository, AuthTokenRepository authTokenRepository) {
+    SignedTokenCodec signedTokenCodec;
+    public AuthenticationController(AccountRepository accountRepository, AuthTokenRepository authTokenRepository, SignedTokenCodec signedTokenCodec) {
         this.accountRepository = accountRepository;
         this.authTokenRepository = authTokenRepository;
+        this.signedTokenCodec = signedTokenCodec;
     }
 
 
 
-    public static Account getByToken(String token, AuthTokenRepository authTokenRepository) throws Exception {
-        for (AuthToken authToken : authTokenRepository.findAll()) {
-            if (authToken.getValue().equals(token)) {
-                //token found.
-                return authToken.getAccount();
+    public static Account getByToken(String token, AuthTokenRepository authTokenRepository, SignedTokenCodec signedTokenCodec) throws Exception {
+        if (signedTokenCodec.isEnabled() && SignedTokenCodec.isSignedToken(token)) {
+            //stateless token, verified without touching the database.
+            Account account = signedTokenCodec.verify(token);
+            if (account == null) {
+                throw new Exception("Invalid, expired or revoked signed token.");
             }
+            return account;
+        }
+
+        Account cached = tokenCache.get(token);
+        if (cached != null) {
+            return cached;
         }
-        //no matching token exists.
-        throw new Exception("No matching token exists.");
+
+        AuthToken authToken = authTokenRepository.findByValue(token);
+        if (authToken == null) {
+            //no matching token exists.
+            throw new Exception("No matching token exists.");
+        }
+        if (authToken.isExpired()) {
+            //left for the sweeper to delete.
+            throw new Exception("Token has expired.");
+        }
+        tokenCache.put(token, authToken.getAccount(), authToken.getExpiresAt().toEpochMilli());
+        return authToken.getAccount();
+    }
+
+
+
+    public static void invalidateToken(String token) {
+        tokenCache.invalidate(token);
+    }
+
+
+
+    private String issueToken(Account account) {
+        if (signedTokenCodec.isEnabled()) {
+            return signedTokenCodec.issue(account);
+        }
+        return new AuthToken(account, authTokenRepository).getValue();
     }
 
 
 
     @PostMapping("/api/auth/authenticate")
-    public ResponseEntity<HashMap<String, Object>> authenticate(@RequestBody String data) {
+    public ResponseEntity<HashMap<String, Object>> authenticate(@RequestBody CredentialsRequest request) {
         HashMap<String, Object> response = new HashMap<>();
 
-        String username;
-        String password;
-
-        ObjectMapper mapper = new ObjectMapper();
-        try { //read data from request
-            JsonNode node = mapper.readTree(data);
-            username = node.get("username").asText();
-            password = node.get("password").asText();
-        } catch (Exception e) {
-            Log.create(e.getMessage(), "AuthenticationController.authenticate()", "info", e);
-            response.put("error", "authenticate_parse");
-            return new ResponseEntity<>(response, HttpStatus.valueOf(500));
-        }
+        String username = request.username();
+        String password = request.password();
 
         //ensure account exists
         if (!Account.exists(username, accountRepository)) {
-            Log.create("Attempted to access account " + username + ", but it does not exist.",
+            Log.create(() -> "Attempted to access account " + username + ", but it does not exist.",
                     "AuthenticationController.authenticate()", "info", null);
             response.put("error", "account_nonexistent");
             return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
@@ -78,24 +110,23 @@ public class AuthenticationController {
         Account account = Account.authenticate(username, password, accountRepository);
         if (account != null) { //password was correct, successfully authenticated
             //delete the old token associated with this account, if any.
-            for (AuthToken token : authTokenRepository.findAll()) {
-                if (token.getAccount().getUsername().equals(account.getUsername())) {
-                    authTokenRepository.delete(token);
-                }
+            for (AuthToken token : authTokenRepository.findByAccount(account)) {
+                invalidateToken(token.getValue());
+                authTokenRepository.delete(token);
             }
             //create a new token for the account.
-            AuthToken token = new AuthToken(account, authTokenRepository);
+            String token = issueToken(account);
 
             HttpHeaders cookieHeaders = new HttpHeaders();
-            String tokenCookie = "token=" + token.getValue() + "; Max-Age=3600;";
+            String tokenCookie = "token=" + token + "; Max-Age=" + AuthToken.TOKEN_LIFETIME_SECONDS + ";";
             cookieHeaders.add("Set-Cookie", tokenCookie);
 
             response.put("error", "none");
             response.put("authenticated", true);
-            response.put("token", token.getValue());
+            response.put("token", token);
             return new ResponseEntity<>(response, cookieHeaders, HttpStatus.OK);
         } else { //incorrect password, reject
-            Log.create("Failed to authenticate account " + username + " with password " + password + ".",
+            Log.create(() -> "Failed to authenticate account " + username + ".",
                     "AuthenticationController.authenticate()", "info", null);
             response.put("error", "invalid_password");
             return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
@@ -105,20 +136,10 @@ public class AuthenticationController {
 
 
     @PostMapping("/api/auth/exists")
-    public ResponseEntity<HashMap<String, Object>> exists(@RequestBody String data) {
+    public ResponseEntity<HashMap<String, Object>> exists(@RequestBody UsernameRequest request) {
         HashMap<String, Object> response = new HashMap<>();
 
-        String username;
-
-        ObjectMapper mapper = new ObjectMapper();
-        try { //read data from request
-            JsonNode node = mapper.readTree(data);
-            username = node.get("username").asText();
-        } catch (Exception e) {
-            Log.create(e.getMessage(), "AuthenticationController.exists()", "info", e);
-            response.put("error", "authenticate_parse");
-            return new ResponseEntity<>(response, HttpStatus.valueOf(500));
-        }
+        String username = request.username();
 
         response.put("exists", Account.exists(username, accountRepository));
         return new ResponseEntity<>(response, HttpStatus.OK);
@@ -127,42 +148,62 @@ public class AuthenticationController {
 
 
     @PostMapping("/api/auth/create")
-    public ResponseEntity<HashMap<String, Object>> create(@RequestBody String data) {
+    public ResponseEntity<HashMap<String, Object>> create(@RequestBody CredentialsRequest request) {
         HashMap<String, Object> response = new HashMap<>();
 
-        String username;
-        String password;
-
-        ObjectMapper mapper = new ObjectMapper();
-        try { //read data from request
-            JsonNode node = mapper.readTree(data);
-            username = node.get("username").asText();
-            password = node.get("password").asText();
-        } catch (Exception e) {
-            Log.create(e.getMessage(), "AuthenticationController.exists()", "info", e);
-            response.put("error", "authenticate_parse");
-            return new ResponseEntity<>(response, HttpStatus.valueOf(500));
-        }
+        String username = request.username();
+        String password = request.password();
 
         //make sure the account doesn't already exist
         if (Account.exists(username, accountRepository)) {
-            Log.create("Attempted to create account, but the username " + username + " already exists.",
+            Log.create(() -> "Attempted to create account, but the username " + username + " already exists.",
                     "AuthenticationController.create()", "info", null);
             response.put("error", "username_taken");
             return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
         }
 
         //create account
-        Account account = Account.create(username, password, accountRepository);
-        AuthToken token = new AuthToken(account, authTokenRepository);
+        Account account;
+        try {
+            account = Account.create(username, password, accountRepository);
+        } catch (DataIntegrityViolationException e) { //lost a race against another create on the unique username index
+            Log.create(() -> "Attempted to create account, but the username " + username + " was taken concurrently.",
+                    "AuthenticationController.create()", "info", null);
+            response.put("error", "username_taken");
+            return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
+        }
+        String token = issueToken(account);
 
         //reply
         response.put("error", "none");
         response.put("authenticated", true);
-        response.put("token", token.getValue());
+        response.put("token", token);
         HttpHeaders cookieHeaders = new HttpHeaders();
-        String tokenCookie = "token=" + token.getValue() + "; Max-Age=3600;";
+        String tokenCookie = "token=" + token + "; Max-Age=" + AuthToken.TOKEN_LIFETIME_SECONDS + ";";
         cookieHeaders.add("Set-Cookie", tokenCookie);
         return new ResponseEntity<>(response, cookieHeaders, HttpStatus.OK);
     }
+
+
+
+    @PostMapping("/api/auth/logout")
+    public ResponseEntity<HashMap<String, Object>> logout(@CookieValue(value = "token", defaultValue = "null") String token) {
+        HashMap<String, Object> response = new HashMap<>();
+
+        if (SignedTokenCodec.isSignedToken(token)) {
+            signedTokenCodec.revoke(token);
+        } else {
+            invalidateToken(token);
+            AuthToken authToken = authTokenRepository.findByValue(token);
+            if (authToken != null) {
+                authTokenRepository.delete(authToken);
+            }
+        }
+
+        //expire the cookie on the client as well.
+        HttpHeaders cookieHeaders = new HttpHeaders();
+        cookieHeaders.add("Set-Cookie", "token=; Max-Age=0;");
+        response.put("error", "none");
+        return new ResponseEntity<>(response, cookieHeaders, HttpStatus.OK);
+    }
 }
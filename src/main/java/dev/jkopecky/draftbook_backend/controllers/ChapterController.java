@@ -1,140 +1,81 @@
 package dev.jkopecky.draftbook_backend.controllers;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import dev.jkopecky.draftbook_backend.Log;
+import dev.jkopecky.draftbook_backend.data.TextEdit;
 import dev.jkopecky.draftbook_backend.data.Util;
+import dev.jkopecky.draftbook_backend.data.storage.ChapterContentStore;
 import dev.jkopecky.draftbook_backend.data.tables.*;
+import dev.jkopecky.draftbook_backend.web.AuthenticatedWork;
+import dev.jkopecky.draftbook_backend.web.ETags;
+import dev.jkopecky.draftbook_backend.web.requests.*;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Controller
 @CrossOrigin
 public class ChapterController {
 
 
+    //saves and patches of the same chapter are serialized on one of these, picked by chapter id.
+    private static final int CHAPTER_LOCK_STRIPES = 64;
+    private final ReentrantLock[] chapterLocks = new ReentrantLock[CHAPTER_LOCK_STRIPES];
+
+
     //all the database repositories load here, add a new entry if another table is needed for this controller
     AccountRepository accountRepository;
     WorkRepository workRepository;
     ChapterRepository chapterRepository;
     NoteCategoryRepository noteCategoryRepository;
-    AuthTokenRepository authTokenRepository;
-    public ChapterController(AccountRepository accountRepository, WorkRepository workRepository, ChapterRepository chapterRepository, NoteCategoryRepository noteCategoryRepository, AuthTokenRepository authTokenRepository) {
+    ChapterContentStore contentStore;
+    public ChapterController(AccountRepository accountRepository, WorkRepository workRepository, ChapterRepository chapterRepository, NoteCategoryRepository noteCategoryRepository, ChapterContentStore contentStore) {
         this.accountRepository = accountRepository;
         this.workRepository = workRepository;
         this.chapterRepository = chapterRepository;
         this.noteCategoryRepository = noteCategoryRepository;
-        this.authTokenRepository = authTokenRepository;
-    }
-
-
-
-    private Object getTargetWork(String target, Account account) {
-        //retrieve work
-        ArrayList<Work> works = account.getOwnedWorks(workRepository);
-        for (Work work : works) {
-            if (work.toResource().equals(target)) {
-                //found the work
-                return work;
-            }
+        this.contentStore = contentStore;
+        for (int i = 0; i < CHAPTER_LOCK_STRIPES; i++) {
+            chapterLocks[i] = new ReentrantLock();
         }
-
-        //if this point is reached, the work was not found in the user's list of works
-        Log.create("Failed to find work " + target + " in account work list.",
-                "WorkController.getWork()", "info", null);
-        return "unrecognized_work";
     }
 
 
 
-    public ArrayList<Object> getAccountAndWork(String token, String target) {
-        ArrayList<Object> output = new ArrayList<>();
-        String error = "none";
-
-        //confirm user credentials
-        Account account;
-        try {
-            account = AuthenticationController.getByToken(token, authTokenRepository);
-        } catch (Exception e) {
-            //failed to retrieve account;
-            error = "Failed to match auth token to account";
-            output.add(error);
-            return output;
-        }
-
-        //retrieve work
-        Work work;
-        Object workResult = getTargetWork(target, account);
-        if (workResult instanceof Work w) {
-            work = w;
-        } else {
-            error = "" + workResult;
-            output.add(error);
-            return output;
-        }
-        output.add(account);
-        output.add(work);
-        output.add(error);
-        return output;
+    private ReentrantLock lockFor(Chapter chapter) {
+        return chapterLocks[Math.floorMod(chapter.getId(), CHAPTER_LOCK_STRIPES)];
     }
 
 
 
-
-
-
-
     //note: inputs {chaptername, chapternumber}
     @PostMapping("/api/works/chapters/create")
     public ResponseEntity<HashMap<String, Object>> createChapter(
-            @RequestParam(name = "target", required = true) String target,
-            @CookieValue(value = "token", defaultValue = "null") String token,
-            @RequestBody String data) {
+            @RequestBody CreateChapterRequest request,
+            AuthenticatedWork auth) {
 
         HashMap<String, Object> response = new HashMap<>();
 
-        Account account = null;
-        Work work;
-
-        //retrieve response data
-        String chapterName;
-        int chapterNumber;
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode node = mapper.readTree(data);
-            chapterName = node.get("chaptername").asText();
-            chapterNumber = Integer.parseInt(node.get("chapternumber").asText());
-            //token verification if included in request body
-            if (node.has("token")) {
-                token = node.get("token").asText();
-            }
-        } catch (IOException e) {
-            Log.create(e.getMessage(), "ChapterController.createChapter()", "error", e);
-            response.put("error", e.getMessage());
-            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
-        }
+        String chapterName = request.chapterName();
+        int chapterNumber = request.chapterNumber();
 
-        //auth
-        ArrayList<Object> container = getAccountAndWork(token, target);
-        if (container.size() == 1) {
-            response.put("error", container.get(0));
-            return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
-        } else {
-            account = (Account) container.get(0);
-            work = (Work) container.get(1); //todo see if this can be adapted to the above get mappings to reduce boilerplate.
-        }
+        Work work = auth.work();
 
 
         //create chapter
         try {
-            work.createChapter(chapterName, chapterNumber, chapterRepository);
+            work.createChapter(chapterName, chapterNumber, chapterRepository, contentStore);
+            work.bumpVersion(workRepository);
         } catch (IOException e) {
             response.put("error", e.getMessage());
             return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
@@ -148,54 +89,93 @@ public class ChapterController {
     //note: inputs {chaptername}
     @PostMapping("/api/works/chapters/select")
     public ResponseEntity<HashMap<String, Object>> selectChapter(
-            @RequestParam(name = "target", required = true) String target,
-            @CookieValue(value = "token", defaultValue = "null") String token,
-            @RequestBody String data) {
+            @RequestBody ChapterRequest request,
+            AuthenticatedWork auth) {
 
-        HashMap<String, Object> response = new HashMap<>();
+        String chapterTarget = request.chapterName();
 
-        Account account;
-        Work work;
+        return readChapter(auth.work(), chapterTarget, null, "ChapterController.selectChapter()");
+    }
 
-        //retrieve response data
-        String chapterTarget;
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode node = mapper.readTree(data);
-            chapterTarget = node.get("chaptername").asText();
-            //token verification if included in request body
-            if (node.has("token")) {
-                token = node.get("token").asText();
-            }
-        } catch (IOException e) {
-            Log.create(e.getMessage(), "ChapterController.selectChapter()", "error", e);
-            response.put("error", e.getMessage());
+
+
+    //note: inputs ?target=...&chaptername=..., the GET form of select, which answers If-None-Match with a 304
+    @GetMapping("/api/works/chapters/content")
+    public ResponseEntity<HashMap<String, Object>> getChapterContent(
+            @RequestParam("chaptername") String chapterTarget,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            AuthenticatedWork auth) {
+        return readChapter(auth.work(), chapterTarget, ifNoneMatch, "ChapterController.getChapterContent()");
+    }
+
+
+
+    //note: inputs ?target=...&chaptername=...&part=content|notes
+    //copies the stored text straight to the response instead of building a String and a JSON map around it.
+    @GetMapping("/api/works/chapters/content/stream")
+    public ResponseEntity<?> streamChapterContent(
+            @RequestParam("chaptername") String chapterTarget,
+            @RequestParam(value = "part", defaultValue = "content") String part,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            AuthenticatedWork auth) {
+
+        HashMap<String, Object> response = new HashMap<>();
+
+        boolean notes = part.equals("notes");
+        if (!notes && !part.equals("content")) {
+            response.put("error", "unrecognized_part");
             return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
         }
 
-        //auth
-        ArrayList<Object> container = getAccountAndWork(token, target);
-        if (container.size() == 1) {
-            response.put("error", container.get(0));
-            return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
-        } else {
-            account = (Account) container.get(0);
-            work = (Work) container.get(1);
+        for (Chapter c : auth.work().getChapters(chapterRepository)) {
+            if (c.toResource().equals(chapterTarget)) {
+                HttpHeaders headers = new HttpHeaders();
+                headers.setETag(ETags.forChapter(c));
+                if (ETags.matches(ifNoneMatch, headers.getETag())) {
+                    return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+                }
+                headers.setContentType(new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8));
+
+                StreamingResponseBody body = out -> {
+                    if (notes) {
+                        c.transferNotes(out, contentStore);
+                    } else {
+                        c.transferHTML(out, contentStore);
+                    }
+                };
+                return new ResponseEntity<>(body, headers, HttpStatus.OK);
+            }
         }
 
+        response.put("error", "unrecognized_chapter");
+        return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
+    }
+
+
+
+    private ResponseEntity<HashMap<String, Object>> readChapter(Work work, String chapterTarget, String ifNoneMatch, String source) {
+        HashMap<String, Object> response = new HashMap<>();
 
         try {
             for (Chapter c : work.getChapters(chapterRepository)) {
                 if (c.toResource().equals(chapterTarget)) {
-                    response.put("content", c.retrieveAsHTML());
-                    response.put("notes", c.readNotes());
+                    //the tag comes from the database row, so an unchanged chapter is answered without reading its files.
+                    HttpHeaders headers = new HttpHeaders();
+                    headers.setETag(ETags.forChapter(c));
+                    if (ETags.matches(ifNoneMatch, headers.getETag())) {
+                        return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+                    }
+
+                    response.put("content", c.retrieveAsHTML(contentStore));
+                    response.put("notes", c.readNotes(contentStore));
                     response.put("title", c.getTitle());
+                    response.put("version", c.getContentVersion());
                     response.put("error", "none");
-                    return new ResponseEntity<>(response, HttpStatus.OK);
+                    return new ResponseEntity<>(response, headers, HttpStatus.OK);
                 }
             }
         } catch (IOException e) {
-            Log.create(e.getMessage(), "ChapterController.selectChapter()", "error", e);
+            Log.create(e.getMessage(), source, "error", e);
             response.put("error", e.getMessage());
             return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
         }
@@ -208,40 +188,14 @@ public class ChapterController {
     //note: inputs {chaptername}
     @PostMapping("/api/works/chapters/rename")
     public ResponseEntity<HashMap<String, Object>> renameChapter(
-            @RequestParam(name = "target", required = true) String target,
-            @CookieValue(value = "token", defaultValue = "null") String token,
-            @RequestBody String data) {
+            @RequestBody ChapterRequest request,
+            AuthenticatedWork auth) {
 
         HashMap<String, Object> response = new HashMap<>();
 
-        Account account;
-        Work work;
-
-        //retrieve response data
-        String chapterTarget;
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode node = mapper.readTree(data);
-            chapterTarget = node.get("chaptername").asText();
-            //token verification if included in request body
-            if (node.has("token")) {
-                token = node.get("token").asText();
-            }
-        } catch (IOException e) {
-            Log.create(e.getMessage(), "ChapterController.selectChapter()", "error", e);
-            response.put("error", e.getMessage());
-            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
-        }
+        String chapterTarget = request.chapterName();
 
-        //auth
-        ArrayList<Object> container = getAccountAndWork(token, target);
-        if (container.size() == 1) {
-            response.put("error", container.get(0));
-            return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
-        } else {
-            account = (Account) container.get(0);
-            work = (Work) container.get(1);
-        }
+        Work work = auth.work();
 
         return null; //todo implement
     }
@@ -251,45 +205,17 @@ public class ChapterController {
     //note: inputs {chaptername, content, notes}
     @PostMapping("/api/works/chapters/save")
     public ResponseEntity<HashMap<String, Object>> saveChapter(
-            @RequestParam(name = "target", required = true) String target,
-            @CookieValue(value = "token", defaultValue = "null") String token,
-            @RequestBody String data) {
+            @RequestBody SaveChapterRequest request,
+            AuthenticatedWork auth) {
 
         HashMap<String, Object> response = new HashMap<>();
 
-        Account account;
-        Work work;
+        String chapterTitle = request.chapterName();
+        String content = request.content();
+        String notes = request.notes();
 
-        //retrieve response data
-        String chapterTitle;
-        String content;
-        String notes;
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode node = mapper.readTree(data);
-            chapterTitle = node.get("chaptername").asText();
-            content = node.get("content").asText();
-            notes = node.get("notes").asText();
-            //token verification if included in request body
-            if (node.has("token")) {
-                token = node.get("token").asText();
-            }
-        } catch (IOException e) {
-            Log.create(e.getMessage(), "ChapterController.saveChapter()", "error", e);
-            response.put("error", e.getMessage());
-            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
-        }
 
-
-        //auth
-        ArrayList<Object> container = getAccountAndWork(token, target);
-        if (container.size() == 1) {
-            response.put("error", container.get(0));
-            return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
-        } else {
-            account = (Account) container.get(0);
-            work = (Work) container.get(1);
-        }
+        Work work = auth.work();
 
 
         //save chapter
@@ -301,12 +227,26 @@ public class ChapterController {
                 }
             }
             if (chapter != null) {
-                chapter.writeHTML(content);
-                chapter.writeNotes(notes);
+                ReentrantLock lock = lockFor(chapter);
+                lock.lock();
+                try {
+                    chapter.setWordCount(Util.countWords(content));
+                    chapter.writeHTML(content, contentStore);
+                    try {
+                        chapter.writeNotes(notes, contentStore);
+                    } finally {
+                        //the content has landed even if the notes failed, so the version has to move on either way.
+                        chapter.bumpContentVersion(chapterRepository);
+                        work.bumpVersion(workRepository); //moves the work up the listing, and refreshes its chapter list
+                    }
+                } finally {
+                    lock.unlock();
+                }
                 response.put("error", "none");
+                response.put("version", chapter.getContentVersion());
                 return new ResponseEntity<>(response, HttpStatus.OK);
             } else {
-                Log.create("Unrecognized chapter: " + chapterTitle, "ChapterController.saveChapter()", "info", null);
+                Log.create(() -> "Unrecognized chapter: " + chapterTitle, "ChapterController.saveChapter()", "info", null);
             }
         } catch (IOException e) {
             Log.create(e.getMessage(), "ChapterController.saveChapter()", "error", e);
@@ -320,45 +260,140 @@ public class ChapterController {
     }
 
 
-    //note: inputs {chaptername}
-    @PostMapping("/api/works/chapters/delete")
-    public ResponseEntity<HashMap<String, Object>> deleteChapter(
-            @RequestParam(name = "target", required = true) String target,
-            @CookieValue(value = "token", defaultValue = "null") String token,
-            @RequestBody String data) {
+    //note: inputs {chaptername, baseVersion, contentEdits, notesEdits}
+    //each edit is {offset, deleteLength, insertText}, applied in order against the stored text at baseVersion.
+    @PostMapping("/api/works/chapters/patch")
+    public ResponseEntity<HashMap<String, Object>> patchChapter(
+            @RequestBody PatchChapterRequest request,
+            AuthenticatedWork auth) {
 
         HashMap<String, Object> response = new HashMap<>();
 
-        Account account;
-        Work work;
+        String chapterTitle = request.chapterName();
+        long baseVersion = request.baseVersion();
+        List<TextEdit> contentEdits = request.contentEdits();
+        List<TextEdit> notesEdits = request.notesEdits();
+
+        Work work = auth.work();
 
-        //retrieve response data
-        String chapterTarget;
+        Chapter chapter = null;
+        for (Chapter c : work.getChapters(chapterRepository)) {
+            if (c.getTitle().equals(chapterTitle)) {
+                chapter = c;
+            }
+        }
+        if (chapter == null) {
+            Log.create(() -> "Unrecognized chapter: " + chapterTitle, "ChapterController.patchChapter()", "info", null);
+            response.put("error", "unrecognized_chapter");
+            return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
+        }
+
+        ReentrantLock lock = lockFor(chapter);
+        lock.lock();
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode node = mapper.readTree(data);
-            chapterTarget = node.get("chaptername").asText();
-            //token verification if included in request body
-            if (node.has("token")) {
-                token = node.get("token").asText();
+            //the client edited an older version, it has to fall back to a full save.
+            if (chapter.getContentVersion() != baseVersion) {
+                response.put("error", "version_conflict");
+                response.put("version", chapter.getContentVersion());
+                return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+            }
+
+            String content = contentEdits.isEmpty() ? null : TextEdit.apply(chapter.retrieveAsHTML(contentStore), contentEdits);
+            String notes = notesEdits.isEmpty() ? null : TextEdit.apply(chapter.readNotes(contentStore), notesEdits);
+
+            if (content != null) {
+                chapter.setWordCount(Util.countWords(content));
+            }
+
+            //write before claiming the next version, as save does, so a failed write never leaves the database
+            //pointing at a version whose content was not stored.
+            boolean written = false;
+            boolean claimed = false;
+            try {
+                if (content != null) {
+                    chapter.writeHTML(content, contentStore);
+                    written = true;
+                }
+                if (notes != null) {
+                    chapter.writeNotes(notes, contentStore);
+                    written = true;
+                }
+
+                //claim the next version in the database as well, in case another node saved in the meantime.
+                claimed = chapter.bumpContentVersion(baseVersion, chapterRepository);
+            } finally {
+                //once any part has landed the stored text is no longer baseVersion's. if the rest failed or another
+                //node claimed the version first, move the version on regardless so the old ETag stops matching.
+                if (written && !claimed) {
+                    chapter.bumpContentVersion(chapterRepository);
+                }
+                if (written || claimed) {
+                    work.bumpVersion(workRepository); //moves the work up the listing, and refreshes its chapter list
+                }
+            }
+            if (!claimed) {
+                response.put("error", "version_conflict");
+                return new ResponseEntity<>(response, HttpStatus.CONFLICT);
             }
+        } catch (IllegalArgumentException e) {
+            Log.create(e.getMessage(), "ChapterController.patchChapter()", "info", null);
+            response.put("error", "patch_out_of_range");
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
         } catch (IOException e) {
-            Log.create(e.getMessage(), "ChapterController.deleteChapter()", "error", e);
+            Log.create(e.getMessage(), "ChapterController.patchChapter()", "error", e);
             response.put("error", e.getMessage());
-            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+            return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
+        } finally {
+            lock.unlock();
         }
 
+        response.put("error", "none");
+        response.put("version", chapter.getContentVersion());
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
 
-        //auth
-        ArrayList<Object> container = getAccountAndWork(token, target);
-        if (container.size() == 1) {
-            response.put("error", container.get(0));
-            return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
-        } else {
-            account = (Account) container.get(0);
-            work = (Work) container.get(1);
+
+    //note: inputs {chapterIds}, every chapter of the work by id, in the new order
+    //renumbers them all in one update, and bumps the work's version so cached chapter lists are refetched.
+    @PostMapping("/api/works/chapters/reorder")
+    public ResponseEntity<HashMap<String, Object>> reorderChapters(
+            @RequestBody ReorderChaptersRequest request,
+            AuthenticatedWork auth) {
+
+        HashMap<String, Object> response = new HashMap<>();
+
+        Work work = auth.work();
+
+        //a partial order would leave the missing chapters on keys that may now collide, so it has to name each one once.
+        List<Integer> order = request.chapterIds();
+        List<Integer> existing = chapterRepository.findIdsByWorkId(work.getId());
+        if (order.size() != existing.size() || !new HashSet<>(order).equals(new HashSet<>(existing))) {
+            response.put("error", "order_mismatch");
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
         }
 
+        work.applyChapterOrder(order, chapterRepository);
+
+        response.put("error", "none");
+        response.put("version", work.getVersion());
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+
+    //note: inputs {chaptername}
+    @PostMapping("/api/works/chapters/delete")
+    public ResponseEntity<HashMap<String, Object>> deleteChapter(
+            @RequestBody ChapterRequest request,
+            AuthenticatedWork auth) {
+
+        HashMap<String, Object> response = new HashMap<>();
+
+        String chapterTarget = request.chapterName();
+
+
+        Work work = auth.work();
+
 
         return null; //todo implement
     }
@@ -1,221 +1,176 @@
 package dev.jkopecky.draftbook_backend.controllers;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import dev.jkopecky.draftbook_backend.Log;
 import dev.jkopecky.draftbook_backend.data.Util;
 import dev.jkopecky.draftbook_backend.data.tables.*;
+import dev.jkopecky.draftbook_backend.web.AuthenticatedWork;
+import dev.jkopecky.draftbook_backend.web.AuthenticatedWorkResolver;
+import dev.jkopecky.draftbook_backend.web.AuthenticationFailedException;
+import dev.jkopecky.draftbook_backend.web.ETags;
+import dev.jkopecky.draftbook_backend.web.requests.RenameWorkRequest;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 @Controller
 @CrossOrigin
 public class WorkController {
 
+    public static final int DEFAULT_LIST_LIMIT = 20;
+    public static final int MAX_LIST_LIMIT = 100;
+
     //all the database repositories load here, add a new entry if another table is needed for this controller
     AccountRepository accountRepository;
     WorkRepository workRepository;
     ChapterRepository chapterRepository;
     NoteCategoryRepository noteCategoryRepository;
-    AuthTokenRepository authTokenRepository;
-    public WorkController(AccountRepository accountRepository, WorkRepository workRepository, ChapterRepository chapterRepository, NoteCategoryRepository noteCategoryRepository, AuthTokenRepository authTokenRepository) {
+    AuthenticatedWorkResolver authenticatedWorkResolver;
+    public WorkController(AccountRepository accountRepository, WorkRepository workRepository, ChapterRepository chapterRepository, NoteCategoryRepository noteCategoryRepository, AuthenticatedWorkResolver authenticatedWorkResolver) {
         this.accountRepository = accountRepository;
         this.workRepository = workRepository;
         this.chapterRepository = chapterRepository;
         this.noteCategoryRepository = noteCategoryRepository;
-        this.authTokenRepository = authTokenRepository;
+        this.authenticatedWorkResolver = authenticatedWorkResolver;
     }
 
 
 
-    //note: work wide api calls
-
+    //note: inputs ?limit=...&after=..., the account comes from the token cookie
+    //the account's works, most recently updated first. pass a reply's nextCursor back as after for the following page,
+    //it is null on the last one.
+    @GetMapping("/api/works/list")
+    public ResponseEntity<HashMap<String, Object>> listWorks(
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", defaultValue = "" + DEFAULT_LIST_LIMIT) int limit,
+            HttpServletRequest request) throws AuthenticationFailedException {
 
+        HashMap<String, Object> response = new HashMap<>();
 
+        //the same token lookup as the work scoped endpoints
+        Account account = authenticatedWorkResolver.authenticate(request);
 
-    private Object getTargetWork(String target, Account account) {
-        //retrieve work
-        ArrayList<Work> works = account.getOwnedWorks(workRepository);
-        for (Work work : works) {
-            if (work.toResource().equals(target)) {
-                //found the work
-                return work;
+        WorkListing.Cursor cursor = null;
+        if (after != null) {
+            cursor = WorkListing.Cursor.decode(after);
+            if (cursor == null) {
+                response.put("error", "invalid_cursor");
+                return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
             }
         }
+        limit = Math.clamp(limit, 1, MAX_LIST_LIMIT);
 
-        //if this point is reached, the work was not found in the user's list of works
-        Log.create("Failed to find work " + target + " in account work list.",
-                "WorkController.getWork()", "info", null);
-        return "unrecognized_work";
-    }
+        //one row past the page tells whether there is a next page, so a full last page gets no cursor.
+        List<WorkListing> works = Work.listForAccount(account, cursor, limit + 1, workRepository);
+        boolean more = works.size() > limit;
+        if (more) {
+            works = works.subList(0, limit);
+        }
 
+        response.put("error", "none");
+        response.put("works", works);
+        response.put("nextCursor", more ? works.getLast().cursor().encode() : null);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
 
 
-    public ArrayList<Object> getAccountAndWork(String token, String target) {
-        ArrayList<Object> output = new ArrayList<>();
-        String error = "none";
 
-        //confirm user credentials
-        Account account;
-        try {
-            account = AuthenticationController.getByToken(token, authTokenRepository);
-        } catch (Exception e) {
-            //failed to retrieve account;
-            error = "Failed to match auth token to account";
-            output.add(error);
-            return output;
-        }
+    //note: work wide api calls
 
-        //retrieve work
-        Work work;
-        Object workResult = getTargetWork(target, account);
-        if (workResult instanceof Work w) {
-            work = w;
-        } else {
-            error = "" + workResult;
-            output.add(error);
-            return output;
-        }
-        output.add(account);
-        output.add(work);
-        output.add(error);
-        return output;
-    }
 
 
 
     @GetMapping("/api/works/work")
     public ResponseEntity<HashMap<String, Object>> getWork(
-            @RequestParam(name = "target", required = true) String target,
-            @CookieValue(value = "token", defaultValue = "null") String token) {
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            AuthenticatedWork auth) {
 
         HashMap<String, Object> response = new HashMap<>();
 
-        Account account;
-        Work work;
-        //auth
-        ArrayList<Object> container = getAccountAndWork(token, target);
-        if (container.size() == 1) {
-            response.put("error", container.get(0));
-            return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
-        } else {
-            account = (Account) container.get(0);
-            work = (Work) container.get(1); //todo see if this can be adapted to the above get mappings to reduce boilerplate.
+        Work work = auth.work();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(ETags.forWork(work));
+        if (ETags.matches(ifNoneMatch, headers.getETag())) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
         }
 
         response.put("error", "none");
-        response.put("work", work); //todo test that this works correctly, sending the work object in json format to the client
-        return new ResponseEntity<>(response, HttpStatus.OK);
+        response.put("work", WorkSummary.of(work));
+        return new ResponseEntity<>(response, headers, HttpStatus.OK);
     }
 
 
 
     @GetMapping("/api/works/chapters")
     public ResponseEntity<HashMap<String, Object>> getChapters(
-            @RequestParam(name = "target", required = true) String target,
-            @CookieValue(value = "token", defaultValue = "null") String token) {
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            AuthenticatedWork auth) {
 
         HashMap<String, Object> response = new HashMap<>();
 
-        Account account;
-        Work work;
-        //auth
-        ArrayList<Object> container = getAccountAndWork(token, target);
-        if (container.size() == 1) {
-            response.put("error", container.get(0));
-            return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
-        } else {
-            account = (Account) container.get(0);
-            work = (Work) container.get(1); //todo see if this can be adapted to the above get mappings to reduce boilerplate.
+        Work work = auth.work();
+
+        //the listing carries every chapter's content version, so the tag covers those as well as the work's own version.
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(ETags.forChapterList(work, chapterRepository.sumContentVersionByWorkId(work.getId())));
+        if (ETags.matches(ifNoneMatch, headers.getETag())) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
         }
 
         response.put("error", "none");
-        response.put("chapters", work.getChapters(chapterRepository)); //todo test that this works correctly
-        return new ResponseEntity<>(response, HttpStatus.OK);
+        response.put("chapters", work.getChapterSummaries(chapterRepository));
+        return new ResponseEntity<>(response, headers, HttpStatus.OK);
     }
 
 
 
     @GetMapping("/api/works/notecategories")
     public ResponseEntity<HashMap<String, Object>> getNotes(
-            @RequestParam(name = "target", required = true) String target,
-            @CookieValue(value = "token", defaultValue = "null") String token) {
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            AuthenticatedWork auth) {
 
         HashMap<String, Object> response = new HashMap<>();
 
-        Account account;
-        Work work;
-        //auth
-        ArrayList<Object> container = getAccountAndWork(token, target);
-        if (container.size() == 1) {
-            response.put("error", container.get(0));
-            return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
-        } else {
-            account = (Account) container.get(0);
-            work = (Work) container.get(1); //todo see if this can be adapted to the above get mappings to reduce boilerplate.
-        }
+        Work work = auth.work();
 
-        ArrayList<NoteCategory> noteCategories = new ArrayList<>();
-        for (NoteCategory nc : noteCategoryRepository.findAll()) {
-            if (nc.getWork().equals(work)) {
-                noteCategories.add(nc);
-            }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(ETags.forNoteCategories(work, noteCategoryRepository.sumVersionByWorkId(work.getId())));
+        if (ETags.matches(ifNoneMatch, headers.getETag())) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
         }
 
+        ArrayList<NoteCategorySummary> noteCategories = NoteCategory.getWorkNoteCategorySummaries(work, noteCategoryRepository);
+
         //retrieve chapters and reply
         response.put("error", "none");
-        response.put("notecategories", noteCategories); //todo test that this works correctly
-        return new ResponseEntity<>(response, HttpStatus.OK);
+        response.put("notecategories", noteCategories);
+        return new ResponseEntity<>(response, headers, HttpStatus.OK);
     }
 
 
 
 
-    @GetMapping("/api/works/rename")
+    //GET is the original binding that existing clients use, POST suits a request with a body.
+    @RequestMapping(value = "/api/works/rename", method = {RequestMethod.GET, RequestMethod.POST})
     public ResponseEntity<HashMap<String, Object>> renameWork(
-            @RequestParam(name = "target", required = true) String target,
-            @CookieValue(value = "token", defaultValue = "null") String token,
-            @RequestBody String data) {
+            @RequestBody RenameWorkRequest request,
+            AuthenticatedWork auth) {
 
         HashMap<String, Object> response = new HashMap<>();
 
-        Account account;
-        Work work;
-        //auth
-        ArrayList<Object> container = getAccountAndWork(token, target);
-        if (container.size() == 1) {
-            response.put("error", container.get(0));
-            return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
-        } else {
-            account = (Account) container.get(0);
-            work = (Work) container.get(1); //todo see if this can be adapted to the above get mappings to reduce boilerplate.
-        }
+        Work work = auth.work();
 
-        //retrieve response data
-        String newName;
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode node = mapper.readTree(data);
-            newName = node.get("newName").asText();
-            //token verification if included in request body
-            if (node.has("token")) {
-                token = node.get("token").asText();
-            }
-        } catch (IOException e) {
-            Log.create(e.getMessage(), "WorkController.renameWork()", "error", e);
-            response.put("error", e.getMessage());
-            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
-        }
+        String newName = request.newName();
 
         boolean result = work.changeName(newName, workRepository);
         if (result) {
+            work.bumpVersion(workRepository);
             response.put("error", "none");
             return new ResponseEntity<>(response, HttpStatus.OK);
         } else {
@@ -230,22 +185,11 @@ public class WorkController {
 
     @GetMapping("/api/works/delete")
     public ResponseEntity<HashMap<String, Object>> deleteWork(
-            @RequestParam(name = "target", required = true) String target,
-            @CookieValue(value = "token", defaultValue = "null") String token) {
+            AuthenticatedWork auth) {
 
         HashMap<String, Object> response = new HashMap<>();
 
-        Account account;
-        Work work;
-        //auth
-        ArrayList<Object> container = getAccountAndWork(token, target);
-        if (container.size() == 1) {
-            response.put("error", container.get(0));
-            return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
-        } else {
-            account = (Account) container.get(0);
-            work = (Work) container.get(1); //todo see if this can be adapted to the above get mappings to reduce boilerplate.
-        }
+        Work work = auth.work();
 
         boolean result = work.delete(workRepository);
         if (result) {
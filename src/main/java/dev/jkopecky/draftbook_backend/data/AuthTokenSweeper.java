@@ -0,0 +1,72 @@
+package dev.jkopecky.draftbook_backend.data;
+
+import dev.jkopecky.draftbook_backend.Log;
+import dev.jkopecky.draftbook_backend.data.tables.AuthTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+
+@Component
+public class AuthTokenSweeper {
+    //  Periodically deletes expired auth tokens, a bounded batch at a time, so the token table
+    //  only holds live sessions. Each batch is located through the index on expiresAt.
+
+    AuthTokenRepository authTokenRepository;
+    private final int batchSize;
+    private final int maxBatchesPerSweep;
+    private final Counter purgedCounter;
+    private final Timer sweepTimer;
+    public AuthTokenSweeper(AuthTokenRepository authTokenRepository, MeterRegistry meterRegistry,
+                            @Value("${draftbook.auth.sweep.batch-size:500}") int batchSize,
+                            @Value("${draftbook.auth.sweep.max-batches:100}") int maxBatchesPerSweep) {
+        this.authTokenRepository = authTokenRepository;
+        this.batchSize = batchSize;
+        this.maxBatchesPerSweep = maxBatchesPerSweep;
+        this.purgedCounter = Counter.builder("draftbook.auth.tokens.purged")
+                .description("Expired auth tokens deleted by the sweeper")
+                .register(meterRegistry);
+        this.sweepTimer = Timer.builder("draftbook.auth.tokens.sweep")
+                .description("Duration of one expired auth token sweep")
+                .register(meterRegistry);
+    }
+
+
+
+    @Scheduled(fixedDelayString = "${draftbook.auth.sweep.interval-ms:300000}",
+            initialDelayString = "${draftbook.auth.sweep.interval-ms:300000}")
+    public void sweep() {
+        sweepTimer.record(this::purgeExpired);
+    }
+
+
+
+    public int purgeExpired() {
+        Instant now = Instant.now();
+        int purged = 0;
+        //cap the number of batches so one sweep cannot hold the table for long, the rest waits for the next run.
+        for (int i = 0; i < maxBatchesPerSweep; i++) {
+            List<Integer> ids = authTokenRepository.findExpiredIds(now, PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            purged += authTokenRepository.deleteByIdIn(ids);
+            if (ids.size() < batchSize) {
+                break;
+            }
+        }
+
+        purgedCounter.increment(purged);
+        if (purged > 0) {
+            int total = purged;
+            Log.create(() -> "Purged " + total + " expired auth tokens.", "AuthTokenSweeper.purgeExpired()", "debug", null);
+        }
+        return purged;
+    }
+}
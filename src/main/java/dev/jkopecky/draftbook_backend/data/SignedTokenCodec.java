@@ -0,0 +1,186 @@
+package dev.jkopecky.draftbook_backend.data;
+
+import dev.jkopecky.draftbook_backend.Log;
+import dev.jkopecky.draftbook_backend.data.tables.Account;
+import dev.jkopecky.draftbook_backend.data.tables.AuthToken;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class SignedTokenCodec {
+    //  Optional stateless session tokens. A token is <payload>.<signature>, both base64url encoded, where the
+    //  payload is accountId:expiresAt:nonce:username and the signature is an HMAC-SHA256 of the payload.
+    //  Verifying one needs no database access. Logouts are covered by a small in-memory revocation list
+    //  keyed by nonce, whose entries are dropped once the token would have expired anyway.
+    //  The revocation list is local to this node: a logged out signed token is still accepted by other nodes
+    //  until it expires, at most TOKEN_LIFETIME_SECONDS later. Deployments that need logout to take effect
+    //  everywhere at once should leave signed tokens off and use table tokens.
+    //  The list holds at most MAX_REVOKED_TOKENS entries; past that the revocation closest to expiring anyway
+    //  is evicted to make room.
+
+    public static final int MAX_REVOKED_TOKENS = 100000;
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int POOLED_MACS = 64;
+
+    private final boolean enabled;
+    private final SecretKeySpec key;
+    //a pool rather than a ThreadLocal, since on virtual threads every request would build and key its own Mac.
+    private final ArrayBlockingQueue<Mac> macs = new ArrayBlockingQueue<>(POOLED_MACS);
+    private final ConcurrentHashMap<String, Long> revoked = new ConcurrentHashMap<>(); //nonce -> expiry in epoch seconds
+    //the same revocations ordered by expiry, so pruning and eviction never scan the map. guarded by itself.
+    private final PriorityQueue<Revocation> revokedByExpiry = new PriorityQueue<>(Comparator.comparingLong(Revocation::expiresAt));
+
+    private record Revocation(String nonce, long expiresAt) {}
+
+
+
+    public SignedTokenCodec(@Value("${draftbook.auth.signed-tokens:false}") boolean enabled,
+                            @Value("${draftbook.auth.signing-key:}") String signingKey) {
+        this.enabled = enabled;
+        byte[] keyBytes;
+        if (signingKey.isBlank()) {
+            keyBytes = new byte[32];
+            RANDOM.nextBytes(keyBytes);
+            if (enabled) {
+                Log.create("No draftbook.auth.signing-key configured, signed tokens will not survive a restart or be accepted by other nodes.",
+                        "SignedTokenCodec.SignedTokenCodec()", "warn", null);
+            }
+        } else {
+            keyBytes = Base64.getDecoder().decode(signingKey);
+        }
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+        if (enabled) {
+            Log.create("Signed tokens are enabled, logouts only revoke them on the node that handled the logout.",
+                    "SignedTokenCodec.SignedTokenCodec()", "info", null);
+        }
+    }
+
+
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+
+
+    public static boolean isSignedToken(String token) {
+        //table tokens are plain base64url, which never contains a period.
+        return token.indexOf('.') > 0;
+    }
+
+
+
+    public String issue(Account account) {
+        long expiresAt = System.currentTimeMillis() / 1000 + AuthToken.TOKEN_LIFETIME_SECONDS;
+        byte[] nonce = new byte[12];
+        RANDOM.nextBytes(nonce);
+        String payload = account.getId() + ":" + expiresAt + ":" + ENCODER.encodeToString(nonce) + ":" + account.getUsername();
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        return ENCODER.encodeToString(payloadBytes) + "." + ENCODER.encodeToString(sign(payloadBytes));
+    }
+
+
+
+    //returns a detached account carrying the id and username from the token, or null if the token is invalid.
+    public Account verify(String token) {
+        String[] payload = verifiedPayload(token);
+        if (payload == null) {
+            return null;
+        }
+        long expiresAt = Long.parseLong(payload[1]);
+        if (expiresAt <= System.currentTimeMillis() / 1000 || revoked.containsKey(payload[2])) {
+            return null;
+        }
+
+        Account account = new Account();
+        account.setId(Integer.parseInt(payload[0]));
+        account.setUsername(payload[3]);
+        return account;
+    }
+
+
+
+    public void revoke(String token) {
+        String[] payload = verifiedPayload(token);
+        if (payload == null) {
+            return;
+        }
+        long now = System.currentTimeMillis() / 1000;
+        long expiresAt = Long.parseLong(payload[1]);
+        if (expiresAt <= now) {
+            return; //already rejected as expired
+        }
+        synchronized (revokedByExpiry) {
+            if (revoked.putIfAbsent(payload[2], expiresAt) != null) {
+                return;
+            }
+            revokedByExpiry.add(new Revocation(payload[2], expiresAt));
+            while (!revokedByExpiry.isEmpty() && revokedByExpiry.peek().expiresAt() <= now) {
+                revoked.remove(revokedByExpiry.poll().nonce());
+            }
+            if (revokedByExpiry.size() > MAX_REVOKED_TOKENS) {
+                revoked.remove(revokedByExpiry.poll().nonce());
+                Log.create("Signed token revocation list is full, evicted the revocation closest to expiry.",
+                        "SignedTokenCodec.revoke()", "warn", null);
+            }
+        }
+    }
+
+
+
+    int revokedCount() {
+        return revoked.size();
+    }
+
+
+
+    private byte[] sign(byte[] payload) {
+        Mac mac = macs.poll();
+        if (mac == null) {
+            try {
+                mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        byte[] signature = mac.doFinal(payload); //doFinal leaves the mac reset for the next caller
+        macs.offer(mac); //dropped if the pool is already full
+        return signature;
+    }
+
+
+
+    private String[] verifiedPayload(String token) {
+        int split = token.indexOf('.');
+        if (split <= 0) {
+            return null;
+        }
+        try {
+            byte[] payloadBytes = DECODER.decode(token.substring(0, split));
+            byte[] signature = DECODER.decode(token.substring(split + 1));
+            if (!MessageDigest.isEqual(signature, sign(payloadBytes))) {
+                return null;
+            }
+            String[] payload = new String(payloadBytes, StandardCharsets.UTF_8).split(":", 4);
+            return payload.length == 4 ? payload : null;
+        } catch (IllegalArgumentException e) { //malformed base64
+            return null;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package dev.jkopecky.draftbook_backend.data;
+
+import java.util.List;
+
+//one ranged edit of a text: delete deleteLength characters at offset, then insert insertText there.
+//offsets count UTF-16 code units, the same as JavaScript string indices on the client.
+public record TextEdit(int offset, int deleteLength, String insertText) {
+
+
+
+    //applies the edits in order, each against the result of the ones before it.
+    public static String apply(String base, List<TextEdit> edits) {
+        StringBuilder text = new StringBuilder(base);
+        for (TextEdit edit : edits) {
+            if (edit.offset() < 0 || edit.deleteLength() < 0 || edit.offset() > text.length()
+                    || edit.deleteLength() > text.length() - edit.offset()) { //no int overflow on huge lengths
+                throw new IllegalArgumentException("Edit out of range: offset " + edit.offset() + ", delete "
+                        + edit.deleteLength() + ", text length " + text.length());
+            }
+            text.replace(edit.offset(), edit.offset() + edit.deleteLength(), edit.insertText() == null ? "" : edit.insertText());
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,77 @@
+package dev.jkopecky.draftbook_backend.data;
+
+import dev.jkopecky.draftbook_backend.data.tables.Account;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+public class TokenCache {
+    //  Bounded in-process map of auth token value -> account.
+    //  Entries expire after the same lifetime as the token cookie, and the least recently used
+    //  entry is dropped once the cache is full. A warm entry resolves a token with no database access.
+
+    private final int capacity;
+    private final long ttlMillis;
+    private final LongSupplier clock; //current time in milliseconds
+    private final LinkedHashMap<String, Entry> entries;
+
+
+
+    private record Entry(Account account, long expiresAt) {}
+
+
+
+    public TokenCache(int capacity, long ttlSeconds) {
+        this(capacity, ttlSeconds, System::currentTimeMillis);
+    }
+
+
+
+    TokenCache(int capacity, long ttlSeconds, LongSupplier clock) {
+        this.capacity = capacity;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.clock = clock;
+        //access ordered, so iteration order is least recently used first.
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > TokenCache.this.capacity;
+            }
+        };
+    }
+
+
+
+    public synchronized Account get(String token) {
+        Entry entry = entries.get(token);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() <= clock.getAsLong()) {
+            entries.remove(token);
+            return null;
+        }
+        return entry.account();
+    }
+
+
+
+    public synchronized void put(String token, Account account, long tokenExpiresAt) {
+        //never keep an entry past the expiry of the token itself.
+        long expiresAt = Math.min(clock.getAsLong() + ttlMillis, tokenExpiresAt);
+        entries.put(token, new Entry(account, expiresAt));
+    }
+
+
+
+    public synchronized void invalidate(String token) {
+        entries.remove(token);
+    }
+
+
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
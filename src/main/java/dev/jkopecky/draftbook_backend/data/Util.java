@@ -6,20 +6,106 @@ import java.io.IOException;
 public class Util {
 
 
+    //direct mapped cache of recently normalized names. A slot holds one immutable entry, so racing threads
+    //can only overwrite each other's slot, never see half of one.
+    private static final int RESOURCE_CACHE_SLOTS = 1024;
+    private static final ResourceName[] resourceCache = new ResourceName[RESOURCE_CACHE_SLOTS];
+
+    private record ResourceName(String target, String resource) {}
+
+
+
+    //keeps ascii letters, lowercased, turns whitespace into underscores and drops everything else.
+    //a repeat of a recent name is served from the cache without allocating.
     public static String toInternalResource(String target) {
-        String output = "";
-        for (char c : target.toCharArray()) {
-            if (("" + c).matches("[a-zA-Z]")) {
-                output += ("" + c).toLowerCase();
-            } else if (("" + c).matches("\\s")) {
-                output += "_";
+        int slot = target.hashCode() & (RESOURCE_CACHE_SLOTS - 1);
+        ResourceName cached = resourceCache[slot];
+        if (cached != null && cached.target().equals(target)) {
+            return cached.resource();
+        }
+
+        String resource = normalizeResource(target);
+        resourceCache[slot] = new ResourceName(target, resource);
+        return resource;
+    }
+
+
+
+    private static String normalizeResource(String target) {
+        int length = target.length();
+
+        //names that are already lowercase letters only come back as they are
+        int start = 0;
+        while (start < length && isLowerAsciiLetter(target.charAt(start))) {
+            start++;
+        }
+        if (start == length) {
+            return target;
+        }
+
+        char[] output = new char[length];
+        target.getChars(0, start, output, 0);
+        int written = start;
+        for (int i = start; i < length; i++) {
+            char c = target.charAt(i);
+            if (isLowerAsciiLetter(c)) {
+                output[written++] = c;
+            } else if (c >= 'A' && c <= 'Z') {
+                output[written++] = (char) (c + ('a' - 'A'));
+            } else if (c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r') { //what \s matches
+                output[written++] = '_';
             }
         }
-        return output;
+        return new String(output, 0, written);
     }
 
 
 
+    private static boolean isLowerAsciiLetter(char c) {
+        return c >= 'a' && c <= 'z';
+    }
+
+
+
+
+    //counts the words in a chapter's html: runs of letters and digits, which may contain apostrophes and hyphens.
+    //tags and character references like &nbsp; separate words, so "<b>one</b>two" counts as two.
+    public static int countWords(String html) {
+        int words = 0;
+        boolean inWord = false;
+        int i = 0;
+        while (i < html.length()) {
+            int c = html.codePointAt(i);
+            if (c == '<') {
+                int end = html.indexOf('>', i);
+                i = end < 0 ? html.length() : end + 1;
+                inWord = false;
+                continue;
+            }
+            if (c == '&') {
+                int end = i + 1;
+                while (end < html.length() && end - i <= 10 && (Character.isLetterOrDigit(html.charAt(end)) || html.charAt(end) == '#')) {
+                    end++;
+                }
+                i = end < html.length() && html.charAt(end) == ';' ? end + 1 : i + 1;
+                inWord = false;
+                continue;
+            }
+
+            if (Character.isLetterOrDigit(c)) {
+                if (!inWord) {
+                    words++;
+                    inWord = true;
+                }
+            } else if (!(inWord && (c == '\'' || c == '\u2019' || c == '-'))) {
+                inWord = false;
+            }
+            i += Character.charCount(c);
+        }
+        return words;
+    }
+
+
 
     public static void recursiveDeleteFiles(String path) throws IOException {
         File target = new File(path);
@@ -0,0 +1,30 @@
+package dev.jkopecky.draftbook_backend.data;
+
+import dev.jkopecky.draftbook_backend.Log;
+import dev.jkopecky.draftbook_backend.data.tables.WorkRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+@Component
+public class WorkTimestampBackfill {
+    //  Works created before the updated_at column existed are given the epoch once the application is up,
+    //  so the works listing sorts them last instead of losing them to a null key.
+
+    WorkRepository workRepository;
+    public WorkTimestampBackfill(WorkRepository workRepository) {
+        this.workRepository = workRepository;
+    }
+
+
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void fillMissing() {
+        int filled = workRepository.fillMissingUpdatedAt(Instant.EPOCH);
+        if (filled > 0) {
+            Log.create(() -> "Set a missing updated_at on " + filled + " works.", "WorkTimestampBackfill.fillMissing()", "info", null);
+        }
+    }
+}
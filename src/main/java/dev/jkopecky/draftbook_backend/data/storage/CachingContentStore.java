@@ -0,0 +1,172 @@
+package dev.jkopecky.draftbook_backend.data.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class CachingContentStore implements ChapterContentStore {
+    //  Write-through LRU cache in front of another store, bounded by the total size of the cached content.
+    //  Content is kept as the UTF-8 bytes the backing store holds, not as decoded Strings, which halves the heap cost.
+    //  Reading a chapter that was just saved or read is served from memory.
+
+    private final ChapterContentStore delegate;
+    private final long budgetBytes;
+    private final LinkedHashMap<Path, byte[]> entries = new LinkedHashMap<>(64, 0.75f, true); //least recently used first
+    private long cachedBytes = 0;
+    private long generation = 0; //bumped by every mutation, so a slow read cannot cache content older than a write
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+
+
+    public CachingContentStore(ChapterContentStore delegate, long budgetBytes, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.budgetBytes = budgetBytes;
+        this.hits = Counter.builder("draftbook.content.cache.hits").register(meterRegistry);
+        this.misses = Counter.builder("draftbook.content.cache.misses").register(meterRegistry);
+        this.evictions = Counter.builder("draftbook.content.cache.evictions").register(meterRegistry);
+        Gauge.builder("draftbook.content.cache.bytes", this, CachingContentStore::getCachedBytes).register(meterRegistry);
+    }
+
+
+
+    @Override
+    public byte[] readBytes(Path path) throws IOException {
+        long readGeneration;
+        synchronized (this) {
+            byte[] cached = entries.get(path);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+            readGeneration = generation;
+        }
+
+        misses.increment();
+        byte[] content = delegate.readBytes(path);
+        synchronized (this) {
+            if (generation == readGeneration) {
+                cache(path, content);
+            }
+        }
+        return content;
+    }
+
+
+
+    @Override
+    public void transferTo(Path path, OutputStream out) throws IOException {
+        //a miss streams from the delegate and is not cached, streaming is meant for content too large to want on the heap.
+        byte[] cached;
+        synchronized (this) {
+            cached = entries.get(path);
+        }
+        if (cached != null) {
+            hits.increment();
+            out.write(cached);
+            return;
+        }
+        misses.increment();
+        delegate.transferTo(path, out);
+    }
+
+
+
+    @Override
+    public void writeBytes(Path path, byte[] content) throws IOException {
+        synchronized (this) {
+            generation++;
+            remove(path);
+        }
+        delegate.writeBytes(path, content);
+        synchronized (this) {
+            generation++;
+            cache(path, content);
+        }
+    }
+
+
+
+    @Override
+    public boolean exists(Path path) {
+        synchronized (this) {
+            if (entries.containsKey(path)) {
+                return true;
+            }
+        }
+        return delegate.exists(path);
+    }
+
+
+
+    @Override
+    public void delete(Path path) throws IOException {
+        synchronized (this) {
+            generation++;
+            remove(path);
+        }
+        delegate.delete(path);
+    }
+
+
+
+    @Override
+    public void move(Path source, Path target) throws IOException {
+        synchronized (this) {
+            generation++;
+            remove(source);
+            remove(target);
+        }
+        delegate.move(source, target);
+    }
+
+
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+
+
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+
+
+    private void cache(Path path, byte[] content) {
+        remove(path);
+        if (content.length > budgetBytes) {
+            return; //would evict everything else and still not fit
+        }
+        entries.put(path, content);
+        cachedBytes += content.length;
+
+        Iterator<Map.Entry<Path, byte[]>> iterator = entries.entrySet().iterator();
+        while (cachedBytes > budgetBytes && iterator.hasNext()) {
+            Map.Entry<Path, byte[]> eldest = iterator.next();
+            cachedBytes -= eldest.getValue().length;
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+
+
+    private void remove(Path path) {
+        byte[] removed = entries.remove(path);
+        if (removed != null) {
+            cachedBytes -= removed.length;
+        }
+    }
+}
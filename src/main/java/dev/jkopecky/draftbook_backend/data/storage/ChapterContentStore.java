@@ -0,0 +1,50 @@
+package dev.jkopecky.draftbook_backend.data.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+public interface ChapterContentStore extends Closeable {
+    //  The single I/O path for chapter bodies, chapter notes and category notes.
+    //  Content is UTF-8 text, addressed by the file path it lives at under DraftbookBackendApplication.retrieveRoot().
+    //  Byte arrays handed to or returned from a store may be shared with a cache, and must not be modified.
+
+    byte[] readBytes(Path path) throws IOException;
+
+    void writeBytes(Path path, byte[] content) throws IOException;
+
+    boolean exists(Path path);
+
+    void delete(Path path) throws IOException;
+
+    void move(Path source, Path target) throws IOException;
+
+
+
+    default String read(Path path) throws IOException {
+        return new String(readBytes(path), StandardCharsets.UTF_8);
+    }
+
+
+
+    default void write(Path path, String content) throws IOException {
+        writeBytes(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+
+
+    //copies the decoded content of a file to out without building a String of it. Stores override this to avoid
+    //materializing the whole file on the heap where they can; out is not closed.
+    default void transferTo(Path path, OutputStream out) throws IOException {
+        out.write(readBytes(path));
+    }
+
+
+
+    //flushes anything buffered and releases resources, called when the application shuts down.
+    @Override
+    default void close() throws IOException {
+    }
+}
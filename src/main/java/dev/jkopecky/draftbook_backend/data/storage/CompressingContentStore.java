@@ -0,0 +1,281 @@
+package dev.jkopecky.draftbook_backend.data.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterOutputStream;
+
+public class CompressingContentStore implements ChapterContentStore {
+    //  Deflates content on its way to the backing store and inflates it on the way back.
+    //  A compressed file starts with MAGIC and the uncompressed length, followed by the raw deflate stream.
+    //  Files without the header are plain text, written before compression was enabled, and are read as they are.
+    //  Text never starts with a NUL byte, so the header cannot be mistaken for content.
+
+    private static final byte[] MAGIC = {0, 'D', 'Z', 1};
+    private static final int HEADER_LENGTH = MAGIC.length + Integer.BYTES;
+    private static final int LOCK_STRIPES = 64;
+
+    private final ChapterContentStore delegate;
+    private final int level;
+    private final int minimumBytes;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES]; //keeps migrate() from overwriting a newer save
+
+
+
+    public CompressingContentStore(ChapterContentStore delegate, int level, int minimumBytes) {
+        this.delegate = delegate;
+        this.level = level;
+        this.minimumBytes = minimumBytes;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+
+
+    @Override
+    public byte[] readBytes(Path path) throws IOException {
+        return decode(delegate.readBytes(path));
+    }
+
+
+
+    @Override
+    public void transferTo(Path path, OutputStream out) throws IOException {
+        DecodingOutputStream decoder = new DecodingOutputStream(out);
+        try {
+            delegate.transferTo(path, decoder);
+            decoder.finish();
+        } finally {
+            decoder.end();
+        }
+    }
+
+
+
+    @Override
+    public void writeBytes(Path path, byte[] content) throws IOException {
+        ReentrantLock lock = lockFor(path);
+        lock.lock();
+        try {
+            delegate.writeBytes(path, encode(content));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+
+    @Override
+    public boolean exists(Path path) {
+        return delegate.exists(path);
+    }
+
+
+
+    @Override
+    public void delete(Path path) throws IOException {
+        delegate.delete(path);
+    }
+
+
+
+    @Override
+    public void move(Path source, Path target) throws IOException {
+        delegate.move(source, target);
+    }
+
+
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+
+
+    //rewrites an uncompressed file in compressed form, returns how many bytes that saved on disk.
+    public long migrate(Path path) throws IOException {
+        ReentrantLock lock = lockFor(path);
+        lock.lock();
+        try {
+            byte[] stored = delegate.readBytes(path);
+            if (isCompressed(stored)) {
+                return 0;
+            }
+            byte[] encoded = encode(stored);
+            if (encoded == stored) {
+                return 0; //too small or incompressible, stays plain
+            }
+            delegate.writeBytes(path, encoded);
+            return stored.length - encoded.length;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+
+    public static boolean isCompressed(byte[] stored) {
+        return stored.length >= HEADER_LENGTH && Arrays.equals(stored, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+
+
+    public byte[] encode(byte[] content) {
+        if (content.length < minimumBytes) {
+            return content;
+        }
+
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            byte[] output = new byte[HEADER_LENGTH + content.length]; //worth storing only if it comes out smaller
+            int length = HEADER_LENGTH;
+            while (!deflater.finished() && length < output.length) {
+                length += deflater.deflate(output, length, output.length - length);
+            }
+            if (!deflater.finished()) {
+                return content; //incompressible
+            }
+            System.arraycopy(MAGIC, 0, output, 0, MAGIC.length);
+            ByteBuffer.wrap(output, MAGIC.length, Integer.BYTES).putInt(content.length);
+            return Arrays.copyOf(output, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+
+
+    public static byte[] decode(byte[] stored) throws IOException {
+        if (!isCompressed(stored)) {
+            return stored;
+        }
+
+        int length = ByteBuffer.wrap(stored, MAGIC.length, Integer.BYTES).getInt();
+        byte[] content = new byte[length];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(stored, HEADER_LENGTH, stored.length - HEADER_LENGTH);
+            int inflated = 0;
+            while (inflated < length) {
+                int read = inflater.inflate(content, inflated, length - inflated);
+                if (read == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                inflated += read;
+            }
+            if (inflated != length) {
+                throw new IOException("Compressed content is truncated.");
+            }
+            return content;
+        } catch (DataFormatException e) {
+            throw new IOException("Compressed content is corrupt.", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+
+
+    private ReentrantLock lockFor(Path path) {
+        return locks[Math.floorMod(path.hashCode(), LOCK_STRIPES)];
+    }
+
+
+
+    //passes plain content straight through to out, and inflates content that starts with the header as it arrives,
+    //so transferTo never holds more than a buffer of either form.
+    private static class DecodingOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        private final byte[] header = new byte[HEADER_LENGTH];
+        private int headerLength = 0;
+        private OutputStream target; //picked once the header has been seen
+        private Inflater inflater;
+
+
+
+        DecodingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (target == null) {
+                int taken = Math.min(len, HEADER_LENGTH - headerLength);
+                System.arraycopy(b, off, header, headerLength, taken);
+                headerLength += taken;
+                off += taken;
+                len -= taken;
+                if (headerLength < HEADER_LENGTH) {
+                    return;
+                }
+                pickTarget();
+            }
+            if (len > 0) {
+                target.write(b, off, len);
+            }
+        }
+
+
+
+        private void pickTarget() throws IOException {
+            if (headerLength == HEADER_LENGTH && isCompressed(header)) {
+                inflater = new Inflater(true);
+                target = new InflaterOutputStream(out, inflater, 8192);
+            } else {
+                out.write(header, 0, headerLength);
+                target = out;
+            }
+        }
+
+
+
+        @Override
+        public void flush() throws IOException {
+            if (target != null) {
+                target.flush();
+            }
+        }
+
+
+
+        void finish() throws IOException {
+            if (target == null) {
+                pickTarget(); //shorter than a header, so stored plain
+            }
+            if (inflater != null) {
+                ((InflaterOutputStream) target).finish();
+                if (!inflater.finished()) {
+                    throw new IOException("Compressed content is truncated.");
+                }
+            }
+        }
+
+
+
+        void end() {
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package dev.jkopecky.draftbook_backend.data.storage;
+
+import dev.jkopecky.draftbook_backend.Log;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class CompressionMigrator implements Runnable {
+    //  Walks the data root once in the background and compresses every chapter, chapter note and category note
+    //  that is still stored as plain text. Pauses between files so it never competes with requests for the disk.
+
+    private final CompressingContentStore store;
+    private final Path root;
+    private final long pauseMillis;
+
+
+
+    public CompressionMigrator(CompressingContentStore store, Path root, long pauseMillis) {
+        this.store = store;
+        this.root = root;
+        this.pauseMillis = pauseMillis;
+    }
+
+
+
+    public Thread start() {
+        Thread thread = new Thread(this, "content-compression-migration");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        return thread;
+    }
+
+
+
+    @Override
+    public void run() {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(path -> path.getFileName().toString().endsWith(".txt"))
+                    .filter(path -> !path.getFileName().toString().startsWith("."))
+                    .filter(Files::isRegularFile)
+                    .toList();
+        } catch (IOException e) {
+            Log.create("Failed to list content for compression: " + e.getMessage(), "CompressionMigrator.run()", "error", e);
+            return;
+        }
+
+        int migrated = 0;
+        long saved = 0;
+        for (Path file : files) {
+            try {
+                long fileSaved = store.migrate(file);
+                if (fileSaved > 0) {
+                    migrated++;
+                    saved += fileSaved;
+                }
+                Thread.sleep(pauseMillis);
+            } catch (IOException e) {
+                Log.create("Failed to compress " + file + ": " + e.getMessage(), "CompressionMigrator.run()", "warn", null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        Log.create("Compressed " + migrated + " of " + files.size() + " content files, saving " + saved + " bytes.",
+                "CompressionMigrator.run()", "info", null);
+    }
+}
@@ -0,0 +1,68 @@
+package dev.jkopecky.draftbook_backend.data.storage;
+
+import dev.jkopecky.draftbook_backend.DraftbookBackendApplication;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+
+import java.nio.file.Path;
+
+@Configuration
+public class ContentStoreConfig {
+
+    private CompressingContentStore compressingStore; //kept for the background migration, if compression is on
+    @Value("${draftbook.storage.compression-migrate:true}")
+    private boolean migrateToCompressed;
+    @Value("${draftbook.storage.compression-migrate-pause-ms:10}")
+    private long migrationPauseMillis;
+
+
+
+    //builds the content store from the configured backend, with any enabled layers wrapped around it.
+    //closing it on shutdown flushes buffered writes down the chain.
+    @Bean(destroyMethod = "close")
+    public ChapterContentStore chapterContentStore(
+            @Value("${draftbook.storage.backend:file}") String backend,
+            @Value("${draftbook.storage.fsync:none}") String fsync,
+            @Value("${draftbook.storage.group-commit-window-us:2000}") long groupCommitWindowMicros,
+            @Value("${draftbook.storage.compression:none}") String compression,
+            @Value("${draftbook.storage.compression-level:1}") int compressionLevel,
+            @Value("${draftbook.storage.compression-min-bytes:512}") int compressionMinBytes,
+            @Value("${draftbook.storage.write-behind-ms:0}") long writeBehindMillis,
+            @Value("${draftbook.storage.cache-bytes:67108864}") long cacheBytes,
+            MeterRegistry meterRegistry) {
+
+        ChapterContentStore store = switch (backend) {
+            case "memory" -> new InMemoryContentStore();
+            case "file" -> new FileChannelContentStore(FileChannelContentStore.FsyncMode.valueOf(fsync.toUpperCase()),
+                    groupCommitWindowMicros);
+            default -> throw new IllegalArgumentException("Unknown draftbook.storage.backend: " + backend);
+        };
+        store = new MeteredContentStore(store, meterRegistry); //innermost, so only real file I/O is measured
+
+        if (compression.equals("deflate")) {
+            compressingStore = new CompressingContentStore(store, compressionLevel, compressionMinBytes);
+            store = compressingStore;
+        }
+        if (writeBehindMillis > 0) {
+            store = new WriteBehindContentStore(store, writeBehindMillis, meterRegistry);
+        }
+        if (cacheBytes > 0) {
+            store = new CachingContentStore(store, cacheBytes, meterRegistry);
+        }
+        return store;
+    }
+
+
+
+    //converts content written before compression was enabled, once the application is up.
+    @EventListener(ApplicationReadyEvent.class)
+    public void startCompressionMigration() {
+        if (compressingStore != null && migrateToCompressed) {
+            new CompressionMigrator(compressingStore, Path.of(DraftbookBackendApplication.retrieveRoot()), migrationPauseMillis).start();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package dev.jkopecky.draftbook_backend.data.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class FileChannelContentStore implements ChapterContentStore {
+    //  Reads and writes whole files through a FileChannel and a single ByteBuffer. Large files are best served with
+    //  transferTo, which copies them to the response without holding them on the heap.
+    //  Writes go to a temp file in the same directory that is then atomically moved over the target, so a crash
+    //  leaves either the old or the new content, never a torn file. The fsync mode decides how durable that is:
+    //      - NONE: no fsync, the OS flushes whenever it likes
+    //      - ALWAYS: every write syncs its file and directory before returning
+    //      - GROUP: concurrent writes share one commit window, see GroupCommitter
+
+    public enum FsyncMode { NONE, ALWAYS, GROUP }
+
+    private final FsyncMode fsyncMode;
+    private final GroupCommitter groupCommitter;
+
+
+
+    public FileChannelContentStore() {
+        this(FsyncMode.NONE, 0);
+    }
+
+
+
+    public FileChannelContentStore(FsyncMode fsyncMode, long groupWindowMicros) {
+        this.fsyncMode = fsyncMode;
+        this.groupCommitter = fsyncMode == FsyncMode.GROUP ? new GroupCommitter(groupWindowMicros) : null;
+    }
+
+
+
+    @Override
+    public byte[] readBytes(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to read into memory: " + path);
+            }
+            byte[] content = new byte[(int) size];
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break; //file shrank while reading
+                }
+            }
+            return buffer.position() == content.length ? content : Arrays.copyOf(content, buffer.position());
+        }
+    }
+
+
+
+    @Override
+    public void transferTo(Path path, OutputStream out) throws IOException {
+        //transferTo lets the kernel copy straight to out where it can, and otherwise goes through a small buffer,
+        //so the file is never held on the heap as a whole.
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                long transferred = channel.transferTo(position, size - position, target);
+                if (transferred <= 0) {
+                    break; //file shrank while copying
+                }
+                position += transferred;
+            }
+        }
+    }
+
+
+
+    @Override
+    public void writeBytes(Path path, byte[] content) throws IOException {
+        Path directory = path.getParent();
+        Files.createDirectories(directory);
+        //not Files.createTempFile, whose 0600 mode would end up on every saved file after the move.
+        Path temp = directory.resolve("." + path.getFileName() + Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+
+        FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        try {
+            keepPermissions(path, temp);
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            channel.close();
+            deleteTemp(temp);
+            throw e;
+        }
+
+        if (fsyncMode == FsyncMode.GROUP) {
+            groupCommitter.commit(channel, temp, path); //syncs, moves and closes the channel
+            return;
+        }
+
+        try (channel) {
+            if (fsyncMode == FsyncMode.ALWAYS) {
+                channel.force(true);
+            }
+            atomicMove(temp, path);
+        } catch (IOException e) {
+            deleteTemp(temp);
+            throw e;
+        }
+        if (fsyncMode == FsyncMode.ALWAYS) {
+            syncDirectory(directory);
+        }
+    }
+
+
+
+    //gives the temp file the permissions of the file it replaces, so saving never changes them.
+    //new files keep the mode the umask gave them.
+    static void keepPermissions(Path target, Path temp) throws IOException {
+        PosixFileAttributeView view = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+        if (view == null) {
+            return; //not a POSIX file system
+        }
+        PosixFileAttributes attributes;
+        try {
+            attributes = view.readAttributes();
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        Files.setPosixFilePermissions(temp, attributes.permissions());
+    }
+
+
+
+    static void atomicMove(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+
+
+    static void syncDirectory(Path directory) {
+        //makes the rename itself durable. Not every platform can open a directory, in which case this is skipped.
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            //not supported here, nothing more to do
+        }
+    }
+
+
+
+    static void deleteTemp(Path temp) {
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            //a leftover temp file is harmless
+        }
+    }
+
+
+
+    @Override
+    public boolean exists(Path path) {
+        return Files.isRegularFile(path);
+    }
+
+
+
+    @Override
+    public void delete(Path path) throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+
+
+    @Override
+    public void move(Path source, Path target) throws IOException {
+        Files.move(source, target);
+    }
+
+
+
+    @Override
+    public void close() {
+        if (groupCommitter != null) {
+            groupCommitter.close();
+        }
+    }
+}
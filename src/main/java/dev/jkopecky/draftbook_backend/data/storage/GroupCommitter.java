@@ -0,0 +1,140 @@
+package dev.jkopecky.draftbook_backend.data.storage;
+
+import dev.jkopecky.draftbook_backend.Log;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class GroupCommitter {
+    //  Batches the fsyncs of concurrent saves. Writers hand over their written, unsynced temp file and wait;
+    //  a single committer thread collects everything that arrives within one window, syncs those files back to back,
+    //  renames each over its target, and then syncs every touched directory once for the whole group.
+
+    private record Commit(FileChannel channel, Path temp, Path target, CompletableFuture<Void> done) {}
+
+    private final LinkedBlockingQueue<Commit> queue = new LinkedBlockingQueue<>();
+    private final long windowMicros;
+    private final Thread committer;
+    private volatile boolean running = true;
+
+
+
+    public GroupCommitter(long windowMicros) {
+        this.windowMicros = windowMicros;
+        this.committer = new Thread(this::run, "content-group-commit");
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+
+
+    //blocks until the temp file has been synced and atomically moved over the target.
+    public void commit(FileChannel channel, Path temp, Path target) throws IOException {
+        if (!running) {
+            throw new IOException("Group committer is closed.");
+        }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        queue.add(new Commit(channel, temp, target, done));
+        try {
+            while (true) {
+                try {
+                    done.get(1, TimeUnit.SECONDS);
+                    return;
+                } catch (TimeoutException e) {
+                    if (!committer.isAlive()) { //closed after this commit was queued
+                        throw new IOException("Group committer is closed.");
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for group commit.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+
+
+    private void run() {
+        List<Commit> group = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Commit first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                //let the rest of the burst arrive before syncing.
+                long deadline = System.nanoTime() + windowMicros * 1000;
+                long remaining;
+                while ((remaining = deadline - System.nanoTime()) > 0) {
+                    Commit next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+                queue.drainTo(group);
+                commitGroup(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+
+
+    private void commitGroup(List<Commit> group) {
+        Set<Path> directories = new LinkedHashSet<>();
+        List<Commit> moved = new ArrayList<>();
+        for (Commit commit : group) {
+            try (FileChannel channel = commit.channel()) {
+                channel.force(true);
+                FileChannelContentStore.atomicMove(commit.temp(), commit.target());
+                directories.add(commit.target().getParent());
+                moved.add(commit);
+            } catch (IOException e) {
+                commit.done().completeExceptionally(e);
+                FileChannelContentStore.deleteTemp(commit.temp());
+            }
+        }
+
+        for (Path directory : directories) {
+            FileChannelContentStore.syncDirectory(directory);
+        }
+        for (Commit commit : moved) {
+            commit.done().complete(null);
+        }
+    }
+
+
+
+    public void close() {
+        running = false;
+        try {
+            committer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (committer.isAlive()) {
+            Log.create("Group committer did not finish pending commits on shutdown.", "GroupCommitter.close()", "error", null);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package dev.jkopecky.draftbook_backend.data.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class InMemoryContentStore implements ChapterContentStore {
+    //  Keeps all content in a map, for tests and benchmarks that should not touch the disk.
+
+    private final ConcurrentHashMap<Path, byte[]> contents = new ConcurrentHashMap<>();
+
+
+
+    @Override
+    public byte[] readBytes(Path path) throws IOException {
+        byte[] content = contents.get(path.normalize());
+        if (content == null) {
+            throw new NoSuchFileException(path.toString());
+        }
+        return content.clone();
+    }
+
+
+
+    @Override
+    public void transferTo(Path path, OutputStream out) throws IOException {
+        byte[] content = contents.get(path.normalize());
+        if (content == null) {
+            throw new NoSuchFileException(path.toString());
+        }
+        out.write(content); //no defensive copy needed, out only reads it
+    }
+
+
+
+    @Override
+    public void writeBytes(Path path, byte[] content) {
+        contents.put(path.normalize(), content.clone());
+    }
+
+
+
+    @Override
+    public boolean exists(Path path) {
+        return contents.containsKey(path.normalize());
+    }
+
+
+
+    @Override
+    public void delete(Path path) {
+        contents.remove(path.normalize());
+    }
+
+
+
+    @Override
+    public void move(Path source, Path target) throws IOException {
+        if (exists(target)) {
+            throw new FileAlreadyExistsException(target.toString());
+        }
+        byte[] content = contents.remove(source.normalize());
+        if (content == null) {
+            throw new NoSuchFileException(source.toString());
+        }
+        contents.put(target.normalize(), content);
+    }
+}
@@ -0,0 +1,148 @@
+package dev.jkopecky.draftbook_backend.data.storage;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+public class MeteredContentStore implements ChapterContentStore {
+    //  Times every read, write and transfer that reaches the backend and records how many bytes it moved.
+    //  Sits directly on the backend, so it sees real file I/O: cache hits and buffered autosaves never get here,
+    //  and with compression on the bytes are the compressed size on disk.
+    //      - draftbook.content.io{op}: latency of each operation
+    //      - draftbook.content.io.bytes{op}: bytes read or written by each operation
+
+    private final ChapterContentStore delegate;
+    private final Timer readTimer;
+    private final Timer writeTimer;
+    private final Timer transferTimer;
+    private final DistributionSummary readBytes;
+    private final DistributionSummary writeBytes;
+    private final DistributionSummary transferBytes;
+
+
+
+    public MeteredContentStore(ChapterContentStore delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.readTimer = timer("read", meterRegistry);
+        this.writeTimer = timer("write", meterRegistry);
+        this.transferTimer = timer("transfer", meterRegistry);
+        this.readBytes = bytes("read", meterRegistry);
+        this.writeBytes = bytes("write", meterRegistry);
+        this.transferBytes = bytes("transfer", meterRegistry);
+    }
+
+
+
+    private static Timer timer(String operation, MeterRegistry meterRegistry) {
+        return Timer.builder("draftbook.content.io")
+                .description("Latency of chapter and note file operations")
+                .tag("op", operation)
+                .register(meterRegistry);
+    }
+
+
+
+    private static DistributionSummary bytes(String operation, MeterRegistry meterRegistry) {
+        return DistributionSummary.builder("draftbook.content.io.bytes")
+                .description("Bytes moved by chapter and note file operations")
+                .baseUnit("bytes")
+                .tag("op", operation)
+                .register(meterRegistry);
+    }
+
+
+
+    @Override
+    public byte[] readBytes(Path path) throws IOException {
+        long start = System.nanoTime();
+        byte[] content = delegate.readBytes(path);
+        readTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        readBytes.record(content.length);
+        return content;
+    }
+
+
+
+    @Override
+    public void writeBytes(Path path, byte[] content) throws IOException {
+        long start = System.nanoTime();
+        delegate.writeBytes(path, content);
+        writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        writeBytes.record(content.length);
+    }
+
+
+
+    @Override
+    public void transferTo(Path path, OutputStream out) throws IOException {
+        //includes the time spent waiting on out, which for a response is the client's read speed.
+        CountingOutputStream counted = new CountingOutputStream(out);
+        long start = System.nanoTime();
+        delegate.transferTo(path, counted);
+        transferTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        transferBytes.record(counted.count);
+    }
+
+
+
+    @Override
+    public boolean exists(Path path) {
+        return delegate.exists(path);
+    }
+
+
+
+    @Override
+    public void delete(Path path) throws IOException {
+        delegate.delete(path);
+    }
+
+
+
+    @Override
+    public void move(Path source, Path target) throws IOException {
+        delegate.move(source, target);
+    }
+
+
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+
+
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count = 0;
+
+
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package dev.jkopecky.draftbook_backend.data.storage;
+
+import dev.jkopecky.draftbook_backend.Log;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class WriteBehindContentStore implements ChapterContentStore {
+    //  Buffers writes in one pending slot per file and flushes them to the backing store on an interval.
+    //  Repeated autosaves of the same chapter within an interval replace each other in the slot, so they cost one disk write.
+    //  Reads see pending content first. Everything still pending is flushed when the store is closed on shutdown.
+
+    private final ChapterContentStore delegate;
+    private final ConcurrentHashMap<Path, byte[]> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock(); //keeps a flush from resurrecting a file deleted or moved meanwhile
+    private final ScheduledExecutorService flusher;
+
+    private final Counter flushed;
+    private final Counter coalesced;
+
+
+
+    public WriteBehindContentStore(ChapterContentStore delegate, long flushIntervalMillis, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.flushed = Counter.builder("draftbook.content.writebehind.flushed").register(meterRegistry);
+        this.coalesced = Counter.builder("draftbook.content.writebehind.coalesced").register(meterRegistry);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "content-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+
+
+    @Override
+    public byte[] readBytes(Path path) throws IOException {
+        byte[] buffered = pending.get(path);
+        return buffered != null ? buffered : delegate.readBytes(path);
+    }
+
+
+
+    @Override
+    public void transferTo(Path path, OutputStream out) throws IOException {
+        byte[] buffered = pending.get(path);
+        if (buffered != null) {
+            out.write(buffered);
+        } else {
+            delegate.transferTo(path, out);
+        }
+    }
+
+
+
+    @Override
+    public void writeBytes(Path path, byte[] content) {
+        if (pending.put(path, content) != null) {
+            coalesced.increment();
+        }
+    }
+
+
+
+    @Override
+    public boolean exists(Path path) {
+        return pending.containsKey(path) || delegate.exists(path);
+    }
+
+
+
+    @Override
+    public void delete(Path path) throws IOException {
+        flushLock.lock();
+        try {
+            pending.remove(path);
+            delegate.delete(path);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+
+
+    @Override
+    public void move(Path source, Path target) throws IOException {
+        flushLock.lock();
+        try {
+            //settle both files on disk first, so the move sees the latest content.
+            flushEntry(source);
+            flushEntry(target);
+            delegate.move(source, target);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+
+
+    public void flush() {
+        flushLock.lock();
+        try {
+            for (Path path : pending.keySet()) {
+                try {
+                    flushEntry(path);
+                } catch (IOException e) {
+                    //left pending, retried on the next flush.
+                    Log.create("Failed to flush buffered content for " + path + ": " + e.getMessage(), "WriteBehindContentStore.flush()", "error", e);
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+
+
+    private void flushEntry(Path path) throws IOException {
+        byte[] content = pending.get(path);
+        if (content == null) {
+            return;
+        }
+        delegate.writeBytes(path, content);
+        flushed.increment();
+        //only clear the slot if no newer save arrived while writing.
+        pending.remove(path, content);
+    }
+
+
+
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        if (!pending.isEmpty()) {
+            Log.create(pending.size() + " buffered chapter writes could not be flushed on shutdown.", "WriteBehindContentStore.close()", "error", null);
+        }
+        delegate.close();
+    }
+}
@@ -1,29 +1,32 @@
 package dev.jkopecky.draftbook_backend.data.tables;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 
 import java.util.ArrayList;
 
 @Entity
+@Table(indexes = @Index(name = "idx_account_username", columnList = "username", unique = true))
 public class Account {
 
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     private Integer id;
+    @Column(nullable = false) //unique through idx_account_username
     private String username;
-    private String password;
+    @JsonIgnore
+    private String password; //never serialized, not in replies and not in the json backup copies of works and chapters
 
 
     public static Account getByUsername(String username, AccountRepository repository) {
-        for (Account account : repository.findAll()) {
-            if (account.getUsername().equals(username)) {
-                return account;
-            }
-        }
-        return null;
+        //indexed lookup on the unique username column, null if no such account.
+        return repository.findByUsername(username);
     }
 
 
@@ -39,10 +42,9 @@ public class Account {
 
 
     public static Account authenticate(String username, String password, AccountRepository repo) {
-        for (Account account : repo.findAll()) {
-            if (account.getUsername().equals(username) && account.getPassword().equals(password)) { //todo secure authentication
-                return account;
-            }
+        Account account = repo.findByUsername(username);
+        if (account != null && account.getPassword().equals(password)) { //todo secure authentication
+            return account;
         }
         return null;
     }
@@ -50,24 +52,13 @@ public class Account {
 
 
     public static boolean exists(String username, AccountRepository repo) {
-        for (Account account : repo.findAll()) {
-            if (account.getUsername().equals(username)) {
-                return true;
-            }
-        }
-        return false;
+        return repo.existsByUsername(username);
     }
 
 
 
     public ArrayList<Work> getOwnedWorks(WorkRepository repo) {
-        ArrayList<Work> works = new ArrayList<>();
-        for (Work work : repo.findAll()) {
-            if (work.getAccount().equals(this)) {
-                works.add(work);
-            }
-        }
-        return works;
+        return new ArrayList<>(repo.findByAccountId(id));
     }
 
 
@@ -3,4 +3,8 @@ package dev.jkopecky.draftbook_backend.data.tables;
 import org.springframework.data.repository.CrudRepository;
 
 public interface AccountRepository extends CrudRepository<Account, Integer> {
+
+    Account findByUsername(String username);
+
+    boolean existsByUsername(String username);
 }
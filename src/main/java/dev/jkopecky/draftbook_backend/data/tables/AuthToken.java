@@ -2,14 +2,26 @@ package dev.jkopecky.draftbook_backend.data.tables;
 
 import dev.jkopecky.draftbook_backend.Log;
 import jakarta.persistence.*;
+import org.springframework.dao.DataIntegrityViolationException;
 
-import java.util.UUID;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_auth_token_value", columnList = "token_value", unique = true),
+        @Index(name = "idx_auth_token_expires_at", columnList = "expiresAt")
+})
 public class AuthToken {
 
 
     public static final int PERMITTED_ATTEMPTS_TO_GENERATE_TOKEN = 10;
+    public static final int TOKEN_LIFETIME_SECONDS = 3600; //matches the Max-Age of the token cookie
+    public static final int TOKEN_BYTES = 32; //256 bits of entropy, encoded as 43 url-safe characters
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
 
 
     @Id
@@ -17,7 +29,10 @@ public class AuthToken {
     private Integer id;
     @ManyToOne
     private Account account;
+    @Column(name = "token_value") //value is a reserved word in H2, unique through idx_auth_token_value
     private String value;
+    private Instant issuedAt;
+    private Instant expiresAt;
 
 
     public AuthToken() {} //default constructor required
@@ -25,35 +40,37 @@ public class AuthToken {
 
     public AuthToken(Account account, AuthTokenRepository authTokenRepository) {
         this.account = account;
-        try {
-            genUniqueToken(authTokenRepository);
-        } catch (Exception e) {
-            Log.create("Error encountered generating an auth token.", "AuthToken.AuthToken()", "error", e);
-            value = "ERROR";
+        this.issuedAt = Instant.now();
+        this.expiresAt = issuedAt.plusSeconds(TOKEN_LIFETIME_SECONDS);
+        for (int i = 0; i < PERMITTED_ATTEMPTS_TO_GENERATE_TOKEN; i++) {
+            value = generateTokenValue();
+            try {
+                //uniqueness is enforced by the index on the value column, so only retry if the insert collides.
+                authTokenRepository.save(this);
+                return;
+            } catch (DataIntegrityViolationException e) {
+                Log.create("Generated auth token collided with an existing token, retrying.", "AuthToken.AuthToken()", "debug", null);
+                id = null;
+            }
         }
 
-        authTokenRepository.save(this);
+        Log.create("Failed to generate a unique token.", "AuthToken.AuthToken()", "error", null);
+        throw new IllegalStateException("Failed to generate a unique token.");
     }
 
 
-    public void genUniqueToken(AuthTokenRepository authTokenRepository) throws Exception {
-        for (int i = 0; i < PERMITTED_ATTEMPTS_TO_GENERATE_TOKEN; i++) {
-            String potentialValue = UUID.randomUUID().toString();
-            boolean unique = true;
-            for (AuthToken token : authTokenRepository.findAll()) { //note potential optimization possible? learn sql and replace these.
-                if (token.value.equals(potentialValue)) {
-                    unique = false;
-                    break;
-                }
-            }
-            if (!unique) {
-                continue;
-            }
-            this.value = potentialValue;
-            return;
-        }
 
-        throw new Exception("Failed to generate a unique token.");
+    public boolean isExpired() {
+        //tokens issued before expiry was tracked have no expiresAt, and are treated as expired.
+        return expiresAt == null || !expiresAt.isAfter(Instant.now());
+    }
+
+
+
+    public static String generateTokenValue() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        return ENCODER.encodeToString(bytes);
     }
 
 
@@ -80,4 +97,20 @@ public class AuthToken {
     public void setValue(String value) {
         this.value = value;
     }
+
+    public Instant getIssuedAt() {
+        return issuedAt;
+    }
+
+    public void setIssuedAt(Instant issuedAt) {
+        this.issuedAt = issuedAt;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
 }
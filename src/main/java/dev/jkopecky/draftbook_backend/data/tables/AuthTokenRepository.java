@@ -1,6 +1,26 @@
 package dev.jkopecky.draftbook_backend.data.tables;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
 
 public interface AuthTokenRepository extends CrudRepository<AuthToken, Integer> {
+
+    AuthToken findByValue(String value);
+
+    List<AuthToken> findByAccount(Account account);
+
+    @Query("select t.id from AuthToken t where t.expiresAt is null or t.expiresAt <= :now")
+    List<Integer> findExpiredIds(@Param("now") Instant now, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("delete from AuthToken t where t.id in :ids")
+    int deleteByIdIn(@Param("ids") List<Integer> ids);
 }
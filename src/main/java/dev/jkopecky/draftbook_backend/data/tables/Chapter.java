@@ -1,27 +1,48 @@
 package dev.jkopecky.draftbook_backend.data.tables;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import dev.jkopecky.draftbook_backend.DraftbookBackendApplication;
 import dev.jkopecky.draftbook_backend.Log;
 import dev.jkopecky.draftbook_backend.data.Util;
+import dev.jkopecky.draftbook_backend.data.storage.ChapterContentStore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.Instant;
 
 @Entity
+@Table(indexes = @Index(name = "idx_chapter_work_number", columnList = "work_id, number"))
 public class Chapter implements Comparable<Chapter> {
 
+    //chapters are ordered by number, which is spaced this far apart so a chapter inserted between two others
+    //can take the key halfway between theirs without renumbering anything.
+    public static final int ORDER_GAP = 1024;
+
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     private Integer id;
     private String title;
-    private Integer number;
+    //number and the columns below it are only ever changed by the update queries, never written back by save(),
+    //so a stale copy of the chapter saved after a rename cannot undo a reorder or move a version backwards.
+    @Column(updatable = false)
+    private Integer number; //sparse ordering key, see ORDER_GAP. the chapter's place in the work is its rank by this
     @ManyToOne
     private Work work;
     private String path;
+    @Column(nullable = false, updatable = false)
+    @ColumnDefault("0")
+    private long contentVersion; //bumped on every change to the body or notes
+    @JsonIgnore
+    @Column(updatable = false)
+    private Instant updatedAt; //set on creation, rename and every content version bump, left out of the json backup copy
+    @Column(nullable = false, updatable = false)
+    @ColumnDefault("0")
+    private int wordCount; //of the body, stored with each content version bump so listings never read the files
 
 
 
@@ -38,11 +59,21 @@ public class Chapter implements Comparable<Chapter> {
 
 
 
-    public String retrieveAsHTML() throws IOException {
+    public Path contentPath() {
+        return Path.of(path, "chapter_" + Util.toInternalResource(title) + ".txt");
+    }
+
+
+
+    public Path notesPath() {
+        return Path.of(path, "note_" + Util.toInternalResource(title) + ".txt");
+    }
+
+
+
+    public String retrieveAsHTML(ChapterContentStore store) throws IOException {
         try {
-            String fullPath = path + "chapter_" + Util.toInternalResource(getTitle()) + ".txt";
-            File file = new File(fullPath);
-            return Files.readString(file.toPath());
+            return store.read(contentPath());
         } catch (IOException e) {
             Log.create(e.getMessage(), "Chapter.retrieveAsHTML()", "error", e);
             throw e;
@@ -51,13 +82,20 @@ public class Chapter implements Comparable<Chapter> {
 
 
 
-    public void writeHTML(String html) throws IOException {
+    public void transferHTML(OutputStream out, ChapterContentStore store) throws IOException {
+        try {
+            store.transferTo(contentPath(), out);
+        } catch (IOException e) {
+            Log.create(e.getMessage(), "Chapter.transferHTML()", "error", e);
+            throw e;
+        }
+    }
+
+
+
+    public void writeHTML(String html, ChapterContentStore store) throws IOException {
         try {
-            String fullPath = path + "chapter_" + Util.toInternalResource(getTitle()) + ".txt";
-            File file = new File(fullPath);
-            FileWriter fileWriter = new FileWriter(file);
-            fileWriter.write(html);
-            fileWriter.close();
+            store.write(contentPath(), html);
         } catch (IOException e) { //if file does not exist or cannot be created, or if file cannot be written to
             Log.create(e.getMessage(), "Chapter.writeHTML()", "error", e);
             throw e;
@@ -66,13 +104,9 @@ public class Chapter implements Comparable<Chapter> {
 
 
 
-    public void writeNotes(String notes) throws IOException {
+    public void writeNotes(String notes, ChapterContentStore store) throws IOException {
         try {
-            String fullPath = path + "note_" + Util.toInternalResource(getTitle()) + ".txt";
-            File file = new File(fullPath);
-            FileWriter fileWriter = new FileWriter(file);
-            fileWriter.write(notes);
-            fileWriter.close();
+            store.write(notesPath(), notes);
         } catch (IOException e) { //if file does not exist or cannot be created, or if file cannot be written to
             Log.create(e.getMessage(), "Chapter.writeNotes()", "error", e);
             throw e;
@@ -81,11 +115,9 @@ public class Chapter implements Comparable<Chapter> {
 
 
 
-    public String readNotes() throws IOException {
+    public String readNotes(ChapterContentStore store) throws IOException {
         try {
-            String fullPath = path + "note_" + Util.toInternalResource(getTitle()) + ".txt";
-            File file = new File(fullPath);
-            return Files.readString(file.toPath());
+            return store.read(notesPath());
         } catch (IOException e) {
             Log.create(e.getMessage(), "Chapter.readNotes()", "error", e);
             throw e;
@@ -94,20 +126,51 @@ public class Chapter implements Comparable<Chapter> {
 
 
 
+    public void transferNotes(OutputStream out, ChapterContentStore store) throws IOException {
+        try {
+            store.transferTo(notesPath(), out);
+        } catch (IOException e) {
+            Log.create(e.getMessage(), "Chapter.transferNotes()", "error", e);
+            throw e;
+        }
+    }
+
+
+
+    public void bumpContentVersion(ChapterRepository chapterRepository) {
+        Instant now = Instant.now();
+        chapterRepository.incrementContentVersion(id, now, wordCount);
+        contentVersion++;
+        updatedAt = now;
+    }
+
+
+
+    //only bumps if nobody else changed the content since expectedVersion, returns whether it did.
+    public boolean bumpContentVersion(long expectedVersion, ChapterRepository chapterRepository) {
+        Instant now = Instant.now();
+        if (chapterRepository.incrementContentVersion(id, expectedVersion, now, wordCount) == 0) {
+            return false;
+        }
+        contentVersion = expectedVersion + 1;
+        updatedAt = now;
+        return true;
+    }
+
+
+
     public String toResource() {
         return Util.toInternalResource(getTitle());
     }
 
 
 
-    public boolean delete(ChapterRepository chapterRepository) {
+    public boolean delete(ChapterRepository chapterRepository, ChapterContentStore store) {
         File backupFile = new File(path + "chapter_" + Util.toInternalResource(title) + ".json");
-        File htmlFile = new File(path + "chapter_" + Util.toInternalResource(title) + ".txt");
-        File noteFile = new File(path + "note_" + Util.toInternalResource(title) + ".txt");
         try {
             backupFile.delete();
-            htmlFile.delete();
-            noteFile.delete();
+            store.delete(contentPath());
+            store.delete(notesPath());
             chapterRepository.delete(this);
         } catch (Exception e) {
             Log.create(e.getMessage(), "Chapter.delete()", "error", e);
@@ -118,12 +181,12 @@ public class Chapter implements Comparable<Chapter> {
 
 
 
-    public boolean rename(String name, ChapterRepository chapterRepository) {
-        File newHtmlFile = new File(path + "chapter_" + Util.toInternalResource(name) + ".txt");
-        File newNoteFile = new File(path + "note_" + Util.toInternalResource(name) + ".txt");
+    public boolean rename(String name, ChapterRepository chapterRepository, ChapterContentStore store) {
+        Path newHtmlFile = Path.of(path, "chapter_" + Util.toInternalResource(name) + ".txt");
+        Path newNoteFile = Path.of(path, "note_" + Util.toInternalResource(name) + ".txt");
 
         //check if this name is already in use
-        if (newHtmlFile.isFile() || newNoteFile.isFile() || name.equals(this.title)) {
+        if (store.exists(newHtmlFile) || store.exists(newNoteFile) || name.equals(this.title)) {
             // title already in use by either this or another chapter, do not change.
             Log.create("Attempted to rename chapter " + this.title + " to a name " + name + " that already exists", "Chapter.rename()", "info", null);
             return false;
@@ -131,25 +194,19 @@ public class Chapter implements Comparable<Chapter> {
 
         //transfer content to new files
         try {
-            File oldHtmlFile = new File(path + "note_" + Util.toInternalResource(getTitle()) + ".txt");
-            FileWriter fileWriter = new FileWriter(newHtmlFile);
-            fileWriter.write(Files.readString(oldHtmlFile.toPath()));
-            fileWriter.close();
+            store.writeBytes(newHtmlFile, store.readBytes(contentPath()));
         } catch (IOException e) {
             Log.create("Error while transferring HTML content to new file", "Chapter.rename()", "info", null);
-            newHtmlFile.delete();
+            deleteQuietly(store, newHtmlFile);
             return false;
         }
 
         try {
-            File oldNotesFile = new File(path + "chapter_" + Util.toInternalResource(getTitle()) + ".txt");
-            FileWriter fileWriter = new FileWriter(newNoteFile);
-            fileWriter.write(Files.readString(oldNotesFile.toPath()));
-            fileWriter.close();
+            store.writeBytes(newNoteFile, store.readBytes(notesPath()));
         } catch (IOException e) {
             Log.create("Error while transferring note content to new file", "Chapter.rename()", "info", null);
-            newHtmlFile.delete();
-            newNoteFile.delete();
+            deleteQuietly(store, newHtmlFile);
+            deleteQuietly(store, newNoteFile);
             return false;
         }
 
@@ -165,20 +222,35 @@ public class Chapter implements Comparable<Chapter> {
             oldDataBackup.delete();
         } catch (IOException e) {
             Log.create("Error while transferring backup content to new file", "Chapter.rename()", "info", null);
-            newHtmlFile.delete();
-            newNoteFile.delete();
+            deleteQuietly(store, newHtmlFile);
+            deleteQuietly(store, newNoteFile);
             newDataBackup.delete();
             title = oldTitle;
             return false;
         }
 
         chapterRepository.save(this);
+        //the body now lives under a new name, so move the version on like any other change to it.
+        Instant now = Instant.now();
+        chapterRepository.incrementContentVersion(id, now);
+        contentVersion++;
+        updatedAt = now;
 
         return true;
     }
 
 
 
+    private static void deleteQuietly(ChapterContentStore store, Path target) {
+        try {
+            store.delete(target);
+        } catch (IOException e) {
+            Log.create("Failed to delete " + target + ": " + e.getMessage(), "Chapter.deleteQuietly()", "info", null);
+        }
+    }
+
+
+
     public Integer getId() {
         return id;
     }
@@ -212,5 +284,30 @@ public class Chapter implements Comparable<Chapter> {
         this.number = number;
     }
 
+    public long getContentVersion() {
+        return contentVersion;
+    }
+
+    public void setContentVersion(long contentVersion) {
+        this.contentVersion = contentVersion;
+    }
+
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    //takes effect in the database with the next content version bump.
+    public void setWordCount(int wordCount) {
+        this.wordCount = wordCount;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
 
 }
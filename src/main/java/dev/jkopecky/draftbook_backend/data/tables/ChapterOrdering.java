@@ -0,0 +1,12 @@
+package dev.jkopecky.draftbook_backend.data.tables;
+
+import java.time.Instant;
+import java.util.List;
+
+//custom part of ChapterRepository, implemented by ChapterOrderingImpl.
+public interface ChapterOrdering {
+
+    //gives the listed chapters of the work the ordering keys ORDER_GAP, 2 * ORDER_GAP, ... in one statement,
+    //and bumps the work's version in the same transaction. returns how many chapters were renumbered.
+    int applyOrder(Integer workId, List<Integer> chapterIds, Instant now);
+}
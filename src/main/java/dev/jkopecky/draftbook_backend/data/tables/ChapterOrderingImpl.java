@@ -0,0 +1,46 @@
+package dev.jkopecky.draftbook_backend.data.tables;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public class ChapterOrderingImpl implements ChapterOrdering {
+    //  One update for the whole order: "set number = case id when :id0 then 1024 when :id1 then 2048 ... end".
+    //  The keys are computed here, only the ids are bound, and the where clause keeps it inside the one work.
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+
+
+    @Override
+    @Transactional
+    public int applyOrder(Integer workId, List<Integer> chapterIds, Instant now) {
+        int renumbered = 0;
+        if (!chapterIds.isEmpty()) {
+            StringBuilder jpql = new StringBuilder("update Chapter c set c.number = case c.id");
+            for (int i = 0; i < chapterIds.size(); i++) {
+                jpql.append(" when :id").append(i).append(" then ").append((i + 1) * Chapter.ORDER_GAP);
+            }
+            jpql.append(" else c.number end where c.work.id = :workId and c.id in :ids");
+
+            Query update = entityManager.createQuery(jpql.toString());
+            for (int i = 0; i < chapterIds.size(); i++) {
+                update.setParameter("id" + i, chapterIds.get(i));
+            }
+            update.setParameter("workId", workId);
+            update.setParameter("ids", chapterIds);
+            renumbered = update.executeUpdate();
+        }
+
+        entityManager.createQuery("update Work w set w.version = w.version + 1, w.updatedAt = :now where w.id = :id")
+                .setParameter("now", now)
+                .setParameter("id", workId)
+                .executeUpdate();
+        return renumbered;
+    }
+}
@@ -1,6 +1,48 @@
 package dev.jkopecky.draftbook_backend.data.tables;
 
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface ChapterRepository extends CrudRepository<Chapter, Integer> {
+import java.time.Instant;
+import java.util.List;
+
+public interface ChapterRepository extends CrudRepository<Chapter, Integer>, ChapterOrdering {
+
+    List<Chapter> findByWorkIdOrderByNumberAscIdAsc(Integer workId);
+
+    //the listing clients get, selected column by column from the (work_id, number) index without loading any entities.
+    //number is sparse, so each chapter is given its 1 based place in the order instead.
+    @Query("select new dev.jkopecky.draftbook_backend.data.tables.ChapterSummary(c.id, c.title,"
+            + " row_number() over (order by c.number, c.id), c.contentVersion, c.updatedAt)"
+            + " from Chapter c where c.work.id = :workId order by c.number, c.id")
+    List<ChapterSummary> findSummariesByWorkId(@Param("workId") Integer workId);
+
+    @Query("select c.id from Chapter c where c.work.id = :workId")
+    List<Integer> findIdsByWorkId(@Param("workId") Integer workId);
+
+    //content versions only grow, so together with the work's version this changes whenever the chapter list does.
+    @Query("select coalesce(sum(c.contentVersion), 0) from Chapter c where c.work.id = :workId")
+    long sumContentVersionByWorkId(@Param("workId") Integer workId);
+
+    //for changes that leave the body's words as they are, such as a rename.
+    @Transactional
+    @Modifying
+    @Query("update Chapter c set c.contentVersion = c.contentVersion + 1, c.updatedAt = :now where c.id = :id")
+    int incrementContentVersion(@Param("id") Integer id, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("update Chapter c set c.contentVersion = c.contentVersion + 1, c.updatedAt = :now, c.wordCount = :wordCount where c.id = :id")
+    int incrementContentVersion(@Param("id") Integer id, @Param("now") Instant now, @Param("wordCount") int wordCount);
+
+    //compare and set, only bumps the version if it still is the expected one.
+    @Transactional
+    @Modifying
+    @Query("update Chapter c set c.contentVersion = c.contentVersion + 1, c.updatedAt = :now, c.wordCount = :wordCount"
+            + " where c.id = :id and c.contentVersion = :expected")
+    int incrementContentVersion(@Param("id") Integer id, @Param("expected") long expected, @Param("now") Instant now,
+                                @Param("wordCount") int wordCount);
 }
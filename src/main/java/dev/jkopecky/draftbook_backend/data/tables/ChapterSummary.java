@@ -0,0 +1,8 @@
+package dev.jkopecky.draftbook_backend.data.tables;
+
+import java.time.Instant;
+
+//a chapter as listed to clients, selected straight into this by ChapterRepository.findSummariesByWorkId.
+//unlike the entity it carries no work, account or file paths, and serializing it never triggers a lazy load.
+public record ChapterSummary(Integer id, String title, long number, long contentVersion, Instant updatedAt) {
+}
@@ -3,19 +3,23 @@ package dev.jkopecky.draftbook_backend.data.tables;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import dev.jkopecky.draftbook_backend.Log;
+import dev.jkopecky.draftbook_backend.data.storage.ChapterContentStore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 
 @Entity
+@Table(indexes = @Index(name = "idx_note_category_work", columnList = "work_id"))
 public class NoteCategory {
     //  One noteCategory serves as a container for multiple individual notes
     //  Example: noteCategory 'Character Sheets' could contain individual notes:
@@ -33,6 +37,9 @@ public class NoteCategory {
     private String categoryName;
     @ManyToOne
     private Work work;
+    @Column(nullable = false, updatable = false) //only changed by incrementVersion, never written back by save()
+    @ColumnDefault("0")
+    private long version; //bumped whenever a note is added, renamed or removed
 
 
 
@@ -98,13 +105,22 @@ public class NoteCategory {
 
 
     public static ArrayList<NoteCategory> getWorkNoteCategories(Work work, NoteCategoryRepository noteCategoryRepository) {
-        ArrayList<NoteCategory> categories = new ArrayList<>();
-        for (NoteCategory noteCategory : noteCategoryRepository.findAll()) {
-            if (noteCategory.work.equals(work)) {
-                categories.add(noteCategory);
+        return new ArrayList<>(noteCategoryRepository.findByWorkIdWithNotes(work.getId()));
+    }
+
+
+
+    //the categories of a work with their note names, built from one projected query rather than loaded entities.
+    public static ArrayList<NoteCategorySummary> getWorkNoteCategorySummaries(Work work, NoteCategoryRepository noteCategoryRepository) {
+        LinkedHashMap<Integer, NoteCategorySummary> categories = new LinkedHashMap<>();
+        for (Object[] row : noteCategoryRepository.findNoteRowsByWorkId(work.getId())) {
+            NoteCategorySummary category = categories.computeIfAbsent((Integer) row[0],
+                    id -> new NoteCategorySummary(id, (String) row[1], new ArrayList<>(), (Long) row[2]));
+            if (row[3] != null) {
+                category.notes().add((String) row[3]);
             }
         }
-        return categories;
+        return new ArrayList<>(categories.values());
     }
 
 
@@ -119,6 +135,9 @@ public class NoteCategory {
             if (files != null && files.length > 0) {
                 category.getNotes().clear();
                 for (File file : files) {
+                    if (file.getName().startsWith(".")) {
+                        continue; //hidden, such as an in-progress write's temp file
+                    }
                     category.getNotes().add(file.getName().substring(0, file.getName().lastIndexOf(".")));
                 }
             } else {
@@ -133,71 +152,74 @@ public class NoteCategory {
 
 
 
-    public void renameNote(String oldNote, String newNote, NoteCategoryRepository noteCategoryRepository) throws FileAlreadyExistsException, FileNotFoundException {
+    public Path notePath(String note) {
+        return Path.of(findPath(), note + ".txt");
+    }
+
+
+
+    public void renameNote(String oldNote, String newNote, NoteCategoryRepository noteCategoryRepository, ChapterContentStore store) throws IOException {
         if (!this.getNotes().contains(oldNote)) { //make sure that it exists first.
             Log.create("Attempted to rename note that does not exist", "NoteCategory.renameNote()", "debug", null);
             throw new FileNotFoundException("Attempted to rename note that does not exist");
         }
 
-        File oldFile = new File(this.findPath() + "/" + oldNote + ".txt");
-        File newFile = new File(this.findPath() + "/" + newNote + ".txt");
-        if (newFile.exists()) {
+        if (store.exists(notePath(newNote))) {
             String message = "file " + newNote + " already exists";
             Log.create(message, "NoteCategory.renameNote()", "debug", null);
             throw new FileAlreadyExistsException(message);
         }
 
         try {
-            oldFile.renameTo(newFile);
-        } catch (Exception e) {
+            store.move(notePath(oldNote), notePath(newNote));
+        } catch (IOException e) {
             Log.create(e.getMessage(), "NoteCategory.renameNote()", "error", e);
             throw e;
         }
 
         this.getNotes().set(this.getNotes().indexOf(oldNote), newNote);
         noteCategoryRepository.save(this);
+        bumpVersion(noteCategoryRepository);
     }
 
 
 
-    public void deleteNote(String target, NoteCategoryRepository noteCategoryRepository) throws IOException {
+    public void deleteNote(String target, NoteCategoryRepository noteCategoryRepository, ChapterContentStore store) throws IOException {
         if (!this.getNotes().contains(target)) { //make sure that it exists first
             String message = "Note " + target + " does not exist.";
             Log.create(message, "NoteCategory.deleteNote()", "debug", null);
             throw new FileNotFoundException(message);
         }
 
-        File file = new File(findPath() + "/" + target + ".txt");
-        if (!file.exists()) { //does not exist, remove it from notes list and do nothing.
+        if (!store.exists(notePath(target))) { //does not exist, remove it from notes list and do nothing.
             this.getNotes().remove(target);
             noteCategoryRepository.save(this);
+            bumpVersion(noteCategoryRepository);
             String message = "Note " + target + " does not exist.";
             Log.create(message, "NoteCategory.deleteNote()", "debug", null);
             throw new FileNotFoundException(message);
         }
 
         try {
-            file.delete();
-        } catch (Exception e) {
+            store.delete(notePath(target));
+        } catch (IOException e) {
             Log.create(e.getMessage(), "NoteCategory.deleteNote() {unspecified log 1}", "error", null);
             throw e;
         }
 
         this.getNotes().remove(target);
         noteCategoryRepository.save(this);
+        bumpVersion(noteCategoryRepository);
     }
 
 
 
-    public void addNote(String noteTitle, String content, NoteCategoryRepository repository) throws IOException {
-        File noteFile = new File(this.findPath() + "/" + noteTitle + ".txt"); //define file target
-
+    public void addNote(String noteTitle, String content, NoteCategoryRepository repository, ChapterContentStore store) throws IOException {
         try {
-            FileWriter fileWriter = new FileWriter(noteFile);
-            fileWriter.write(content);
-            fileWriter.close();
+            store.write(notePath(noteTitle), content);
             notes.add(noteTitle);
             repository.save(this);
+            bumpVersion(repository);
         } catch (IOException e) {
             Log.create(e.getMessage(), "NoteCategory.addNote()", "error", e);
             throw e;
@@ -206,6 +228,14 @@ public class NoteCategory {
 
 
 
+    //in the database rather than on this copy, so concurrent changes to the category each count.
+    private void bumpVersion(NoteCategoryRepository noteCategoryRepository) {
+        noteCategoryRepository.incrementVersion(id);
+        version++;
+    }
+
+
+
     public Integer getId() {
         return id;
     }
@@ -237,4 +267,12 @@ public class NoteCategory {
     public void setWork(Work work) {
         this.work = work;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
@@ -1,6 +1,29 @@
 package dev.jkopecky.draftbook_backend.data.tables;
 
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 public interface NoteCategoryRepository extends CrudRepository<NoteCategory, Integer> {
+
+    //fetch joins the notes collection and the owning work, so the categories of a work and all their notes load in one statement.
+    @Query("select distinct c from NoteCategory c join fetch c.work w join fetch w.account left join fetch c.notes where w.id = :workId")
+    List<NoteCategory> findByWorkIdWithNotes(@Param("workId") Integer workId);
+
+    //category versions only grow, so together with the work's version this changes whenever any category does.
+    @Query("select coalesce(sum(c.version), 0) from NoteCategory c where c.work.id = :workId")
+    long sumVersionByWorkId(@Param("workId") Integer workId);
+
+    //one row per note, {category id, category name, category version, note name}, and one with a null note for an empty category.
+    @Query("select c.id, c.categoryName, c.version, n from NoteCategory c left join c.notes n where c.work.id = :workId order by c.id")
+    List<Object[]> findNoteRowsByWorkId(@Param("workId") Integer workId);
+
+    @Transactional
+    @Modifying
+    @Query("update NoteCategory c set c.version = c.version + 1 where c.id = :id")
+    int incrementVersion(@Param("id") Integer id);
 }
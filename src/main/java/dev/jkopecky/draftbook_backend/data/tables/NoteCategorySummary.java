@@ -0,0 +1,7 @@
+package dev.jkopecky.draftbook_backend.data.tables;
+
+import java.util.List;
+
+//a note category as listed to clients: its notes by name, without the owning work.
+public record NoteCategorySummary(Integer id, String categoryName, List<String> notes, long version) {
+}
@@ -1,20 +1,27 @@
 package dev.jkopecky.draftbook_backend.data.tables;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import dev.jkopecky.draftbook_backend.DraftbookBackendApplication;
 import dev.jkopecky.draftbook_backend.Log;
 import dev.jkopecky.draftbook_backend.data.Util;
+import dev.jkopecky.draftbook_backend.data.storage.ChapterContentStore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.springframework.data.domain.PageRequest;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
 
 @Entity
+@Table(indexes = @Index(name = "idx_work_account_updated", columnList = "account_id, updated_at, id"))
 public class Work {
 
     @Id
@@ -24,12 +31,21 @@ public class Work {
     private String path;
     @ManyToOne
     private Account account;
+    //version and updatedAt are only ever changed by the increment queries, never written back by save(), so a stale
+    //copy of the work saved after a rename cannot move them backwards.
+    @Column(nullable = false, updatable = false)
+    @ColumnDefault("0")
+    private long version; //bumped whenever the work, its chapter list or its note categories change
+    @JsonIgnore
+    @Column(updatable = false)
+    private Instant updatedAt; //set whenever the version is bumped, left out of the json backup copy
 
 
     public static void createWork(Account owner, String title, WorkRepository workRepository) throws IOException {
         Work work = new Work();
         work.setTitle(title);
         work.setAccount(owner);
+        work.setUpdatedAt(Instant.now());
         work.buildPath();
         work.createWorkFile();
         workRepository.save(work);
@@ -60,24 +76,23 @@ public class Work {
 
 
 
-    public void createChapter(String title, int index, ChapterRepository chapterRepository) throws IOException {
+    public void createChapter(String title, int index, ChapterRepository chapterRepository, ChapterContentStore store) throws IOException {
         //retrieve all chapters and determine the location to add the new one.
         ArrayList<Chapter> chapters = getChapters(chapterRepository);
 
-        if (index > chapters.size()) { //if index is too large, clamp to adding a chapter to the end
-            index = chapters.size() + 1;
-        }
+        //clamp to a place in the work, a too large index adds the chapter to the end
+        index = Math.clamp(index, 1, chapters.size() + 1);
 
         //create initial chapter object
         Chapter chapter = new Chapter();
         chapter.setTitle(title);
         chapter.setWork(this);
-        chapter.setNumber(index);
+        chapter.setUpdatedAt(Instant.now());
         chapter.buildPath();
 
         //check if chapter is unique
         for (Chapter c : chapters) {
-            if (c.getPath().equals(chapter.getPath())) {
+            if (c.contentPath().equals(chapter.contentPath())) {
                 //a chapter already exists under the same name.
                 String message = "A chapter (" + c.getTitle() + ") already exists under the same internal name.";
                 message += "\n\t - Work: " + this.getTitle();
@@ -105,10 +120,9 @@ public class Work {
 
         //create file for the chapter's body
         try {
-            String path = chapter.getPath() + "chapter_" + Util.toInternalResource(chapter.getTitle()) + ".txt";
-            Files.createDirectories(Paths.get(chapter.getPath()));
-            File file = new File(path);
-            file.createNewFile();
+            if (!store.exists(chapter.contentPath())) {
+                store.writeBytes(chapter.contentPath(), new byte[0]);
+            }
         } catch (IOException e) {
             String message = "Failed to create chapter content file.";
             String source = "Work.createChapter()";
@@ -118,10 +132,9 @@ public class Work {
 
         //create file for chapter-specific notes
         try {
-            String path = chapter.getPath() + "note_" + Util.toInternalResource(chapter.getTitle()) + ".txt";
-            Files.createDirectories(Paths.get(chapter.getPath()));
-            File file = new File(path);
-            file.createNewFile();
+            if (!store.exists(chapter.notesPath())) {
+                store.writeBytes(chapter.notesPath(), new byte[0]);
+            }
         } catch (IOException e) {
             String message = "Failed to create chapter note file.";
             String source = "Work.createChapter()";
@@ -129,27 +142,90 @@ public class Work {
             throw new IOException("Warn in " + source + ": " + message);
         }
 
+        //take the key between the neighbours at index. only when they have no room left, which the dense numbers
+        //of older works never do, is the whole work respaced first.
+        List<Integer> keys = chapters.stream().map(Chapter::getNumber).toList();
+        Integer number = orderKeyAt(keys, index);
+        if (number == null) {
+            applyChapterOrder(chapters.stream().map(Chapter::getId).toList(), chapterRepository);
+            keys = IntStream.rangeClosed(1, chapters.size()).mapToObj(i -> i * Chapter.ORDER_GAP).toList();
+            number = orderKeyAt(keys, index);
+        }
+        chapter.setNumber(number);
         chapterRepository.save(chapter);
 
-        //log success
-        String chapterConfirmationLog = "Created new chapter: ";
-        chapterConfirmationLog += "\n\t - Chapter: " + chapter.getTitle();
-        chapterConfirmationLog += "\n\t - Work: " + this.getTitle();
-        chapterConfirmationLog += "\n\t - Account: " + this.getAccount().getUsername();
-        Log.create(chapterConfirmationLog, "Work.createChapter", "debug", null);
+        //log success, only built if debug logging is on
+        String chapterTitle = chapter.getTitle();
+        String workTitle = this.getTitle();
+        String username = this.getAccount().getUsername();
+        Log.create(() -> "Created new chapter: "
+                + "\n\t - Chapter: " + chapterTitle
+                + "\n\t - Work: " + workTitle
+                + "\n\t - Account: " + username, "Work.createChapter", "debug", null);
+    }
+
+
+
+    //an ordering key that sorts a new chapter into 1 based place index among the existing keys, null if there is no room.
+    private static Integer orderKeyAt(List<Integer> keys, int index) {
+        Integer before = index > 1 ? keys.get(index - 2) : null;
+        Integer after = index <= keys.size() ? keys.get(index - 1) : null;
+        long key;
+        if (before == null && after == null) {
+            key = Chapter.ORDER_GAP;
+        } else if (after == null) {
+            key = (long) before + Chapter.ORDER_GAP;
+        } else if (before == null) {
+            key = (long) after - Chapter.ORDER_GAP;
+        } else if ((long) after - before >= 2) {
+            key = ((long) before + after) / 2;
+        } else {
+            return null;
+        }
+        return key > Integer.MAX_VALUE || key < Integer.MIN_VALUE ? null : (int) key;
+    }
+
+
+
+    //puts the work's chapters in the given order, one id per chapter, in a single update that also bumps the version.
+    public void applyChapterOrder(List<Integer> chapterIds, ChapterRepository chapterRepository) {
+        Instant now = Instant.now();
+        chapterRepository.applyOrder(id, chapterIds, now);
+        version++;
+        updatedAt = now;
     }
 
 
 
     public ArrayList<Chapter> getChapters(ChapterRepository chapterRepository) {
-        ArrayList<Chapter> output = new ArrayList<>();
-        for (Chapter c : chapterRepository.findAll()) {
-            if (this.getPath().equals(c.getWork().getPath())) { //if path matches, it is the same work.
-                output.add(c);
-            }
+        //served in increasing order by number from the (work_id, number) index.
+        return new ArrayList<>(chapterRepository.findByWorkIdOrderByNumberAscIdAsc(id));
+    }
+
+
+
+    //one page of an account's works, starting after the given cursor, or from the most recently updated if it is null.
+    public static List<WorkListing> listForAccount(Account account, WorkListing.Cursor after, int limit, WorkRepository workRepository) {
+        PageRequest page = PageRequest.of(0, limit);
+        if (after == null) {
+            return workRepository.findListing(account.getId(), page);
         }
-        Collections.sort(output); //sort output in increasing order by number.
-        return output;
+        return workRepository.findListingAfter(account.getId(), after.updatedAt(), after.id(), page);
+    }
+
+
+
+    public List<ChapterSummary> getChapterSummaries(ChapterRepository chapterRepository) {
+        return chapterRepository.findSummariesByWorkId(id);
+    }
+
+
+
+    public void bumpVersion(WorkRepository workRepository) {
+        Instant now = Instant.now();
+        workRepository.incrementVersion(id, now);
+        version++;
+        updatedAt = now;
     }
 
 
@@ -222,4 +298,16 @@ public class Work {
     public void setAccount(Account account) {
         this.account = account;
     }
+    public long getVersion() {
+        return version;
+    }
+    public void setVersion(long version) {
+        this.version = version;
+    }
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
 }
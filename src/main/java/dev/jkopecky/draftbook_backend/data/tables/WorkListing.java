@@ -0,0 +1,38 @@
+package dev.jkopecky.draftbook_backend.data.tables;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+//one row of an account's works listing, selected straight into this by WorkRepository.
+public record WorkListing(Integer id, String title, Instant updatedAt, long chapterCount, long wordCount) {
+
+
+
+    //the listing's sort key of this row, where the next page starts.
+    public Cursor cursor() {
+        return new Cursor(updatedAt, id);
+    }
+
+
+
+    //a position in the listing, handed to clients as an opaque url safe string.
+    public record Cursor(Instant updatedAt, Integer id) {
+
+        public String encode() {
+            String key = updatedAt + "_" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+        }
+
+        //null if the string is not a cursor this produced.
+        public static Cursor decode(String cursor) {
+            try {
+                String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int split = key.lastIndexOf('_');
+                return new Cursor(Instant.parse(key.substring(0, split)), Integer.valueOf(key.substring(split + 1)));
+            } catch (RuntimeException e) { //bad base64, no separator, or a bad instant or id
+                return null;
+            }
+        }
+    }
+}
@@ -1,6 +1,45 @@
 package dev.jkopecky.draftbook_backend.data.tables;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
 
 public interface WorkRepository extends CrudRepository<Work, Integer> {
+
+    String LISTING = "select new dev.jkopecky.draftbook_backend.data.tables.WorkListing(w.id, w.title, w.updatedAt,"
+            + " (select count(c) from Chapter c where c.work = w),"
+            + " (select coalesce(sum(c.wordCount), 0L) from Chapter c where c.work = w))"
+            + " from Work w where w.account.id = :accountId";
+    String LISTING_ORDER = " order by w.updatedAt desc, w.id desc";
+
+    Work findByIdAndAccountId(Integer id, Integer accountId);
+
+    List<Work> findByAccountId(Integer accountId);
+
+    //pages of an account's works, most recently updated first, read in index order from (account_id, updated_at, id).
+    //a page seeks straight to the row after the cursor, and the chapter subqueries only run for the rows it returns,
+    //so a deep page costs the same as the first one.
+    @Query(LISTING + LISTING_ORDER)
+    List<WorkListing> findListing(@Param("accountId") Integer accountId, Pageable page);
+
+    @Query(LISTING + " and (w.updatedAt < :updatedAt or (w.updatedAt = :updatedAt and w.id < :id))" + LISTING_ORDER)
+    List<WorkListing> findListingAfter(@Param("accountId") Integer accountId, @Param("updatedAt") Instant updatedAt,
+                                       @Param("id") Integer id, Pageable page);
+
+    //works created before updated_at existed have none, which the listing's keyset cannot step over.
+    @Transactional
+    @Modifying
+    @Query("update Work w set w.updatedAt = :updatedAt where w.updatedAt is null")
+    int fillMissingUpdatedAt(@Param("updatedAt") Instant updatedAt);
+
+    @Transactional
+    @Modifying
+    @Query("update Work w set w.version = w.version + 1, w.updatedAt = :now where w.id = :id")
+    int incrementVersion(@Param("id") Integer id, @Param("now") Instant now);
 }
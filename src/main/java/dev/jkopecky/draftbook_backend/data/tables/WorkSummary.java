@@ -0,0 +1,11 @@
+package dev.jkopecky.draftbook_backend.data.tables;
+
+import java.time.Instant;
+
+//a work as served to clients, without its account or file path.
+public record WorkSummary(Integer id, String title, long version, Instant updatedAt) {
+
+    public static WorkSummary of(Work work) {
+        return new WorkSummary(work.getId(), work.getTitle(), work.getVersion(), work.getUpdatedAt());
+    }
+}
@@ -0,0 +1,56 @@
+package dev.jkopecky.draftbook_backend.metrics;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Set;
+
+@Configuration
+public class MetricsConfig {
+    //  Everything is served by the actuator at /actuator/metrics (and /actuator/metrics/<name>?tag=k:v), exposed by
+    //  DraftbookBackendApplication. Meters worth a look:
+    //      - http.server.requests{uri,method,status}: every /api/... mapping, recorded by Spring MVC itself
+    //      - spring.data.repository.invocations{repository,method}: every repository call, recorded by Spring Data
+    //      - draftbook.repository.rows{repository,method}: entities materialized by those calls, see RepositoryRowMetrics
+    //      - draftbook.content.io{op} and draftbook.content.io.bytes{op}: file I/O, see MeteredContentStore
+    //      - draftbook.content.cache.*, draftbook.content.writebehind.*, draftbook.auth.tokens.*
+
+    //meters that get percentiles and a histogram, so slow endpoints show up as more than an average.
+    private static final Set<String> HISTOGRAM_METERS = Set.of(
+            "http.server.requests",
+            "spring.data.repository.invocations",
+            "draftbook.content.io",
+            "draftbook.content.io.bytes");
+
+
+
+    //static, since it post-processes the repository factory beans and has to exist before them.
+    @Bean
+    public static RepositoryRowMetrics repositoryRowMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new RepositoryRowMetrics(meterRegistry);
+    }
+
+
+
+    @Bean
+    public MeterFilter latencyHistograms() {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (!HISTOGRAM_METERS.contains(id.getName())) {
+                    return config;
+                }
+                return DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true)
+                        .percentiles(0.5, 0.95, 0.99)
+                        .build()
+                        .merge(config);
+            }
+        };
+    }
+}
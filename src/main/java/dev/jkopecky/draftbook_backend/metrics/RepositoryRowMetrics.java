@@ -0,0 +1,102 @@
+package dev.jkopecky.draftbook_backend.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class RepositoryRowMetrics implements BeanPostProcessor {
+    //  Counts the rows every repository method hands back, as draftbook.repository.rows{repository,method}.
+    //  Spring Data already times each call, this adds how much each one loaded: a list counts its size, a single
+    //  entity or present Optional counts one, and update counts and aggregates count nothing.
+    //  Hooked into each repository proxy as it is built, the same way Spring Data's own invocation metrics are.
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+
+
+    public RepositoryRowMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                    (proxyFactory, information) -> proxyFactory.addAdvice(
+                            new RowCounter(information.getRepositoryInterface().getSimpleName(), information.getDomainType()))));
+        }
+        return bean;
+    }
+
+
+
+    private class RowCounter implements MethodInterceptor {
+
+        private final String repository;
+        private final Class<?> domainType;
+        private final ConcurrentHashMap<Method, Counter> counters = new ConcurrentHashMap<>();
+
+
+
+        RowCounter(String repository, Class<?> domainType) {
+            this.repository = repository;
+            this.domainType = domainType;
+        }
+
+
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Object result = invocation.proceed();
+            long rows = countRows(result);
+            if (rows > 0) {
+                counters.computeIfAbsent(invocation.getMethod(), this::counterFor).increment(rows);
+            }
+            return result;
+        }
+
+
+
+        private Counter counterFor(Method method) {
+            return Counter.builder("draftbook.repository.rows")
+                    .description("Rows materialized by repository calls")
+                    .tag("repository", repository)
+                    .tag("method", method.getName())
+                    .register(meterRegistry.getObject());
+        }
+
+
+
+        private long countRows(Object result) {
+            if (result instanceof Collection<?> collection) {
+                return collection.size();
+            }
+            if (result instanceof Slice<?> slice) {
+                return slice.getNumberOfElements();
+            }
+            if (result instanceof Optional<?> optional) {
+                return optional.isPresent() ? 1 : 0;
+            }
+            if (result instanceof Iterable<?> iterable) {
+                long count = 0;
+                for (Object ignored : iterable) {
+                    count++;
+                }
+                return count;
+            }
+            return domainType.isInstance(result) ? 1 : 0;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package dev.jkopecky.draftbook_backend.web;
+
+import dev.jkopecky.draftbook_backend.data.tables.Account;
+import dev.jkopecky.draftbook_backend.data.tables.Work;
+
+//the account behind the request's auth token, and the work named by its target parameter, which that account owns.
+//declare it as a handler parameter to have it resolved by AuthenticatedWorkResolver.
+public record AuthenticatedWork(Account account, Work work) {
+}
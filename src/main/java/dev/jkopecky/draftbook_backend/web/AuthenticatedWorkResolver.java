@@ -0,0 +1,157 @@
+package dev.jkopecky.draftbook_backend.web;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import dev.jkopecky.draftbook_backend.Log;
+import dev.jkopecky.draftbook_backend.controllers.AuthenticationController;
+import dev.jkopecky.draftbook_backend.data.SignedTokenCodec;
+import dev.jkopecky.draftbook_backend.data.tables.Account;
+import dev.jkopecky.draftbook_backend.data.tables.AuthTokenRepository;
+import dev.jkopecky.draftbook_backend.data.tables.Work;
+import dev.jkopecky.draftbook_backend.data.tables.WorkRepository;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.MethodParameter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import java.io.IOException;
+
+@Component
+public class AuthenticatedWorkResolver implements HandlerMethodArgumentResolver {
+    //  Resolves an AuthenticatedWork handler parameter once per request.
+    //  The token comes from the token cookie, or failing that from a top level "token" field of a JSON body,
+    //  and the work from the "target" parameter (workid_N). Ownership is checked with a single keyed query.
+    //  The cookie wins when a request carries both (handlers used to prefer the body token), so that
+    //  requests with a cookie never need their body buffered.
+
+    public static final String WORK_RESOURCE_PREFIX = "workid_";
+    private static final String ATTRIBUTE = AuthenticatedWorkResolver.class.getName();
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    WorkRepository workRepository;
+    AuthTokenRepository authTokenRepository;
+    SignedTokenCodec signedTokenCodec;
+    public AuthenticatedWorkResolver(WorkRepository workRepository, AuthTokenRepository authTokenRepository, SignedTokenCodec signedTokenCodec) {
+        this.workRepository = workRepository;
+        this.authTokenRepository = authTokenRepository;
+        this.signedTokenCodec = signedTokenCodec;
+    }
+
+
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return AuthenticatedWork.class.equals(parameter.getParameterType());
+    }
+
+
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) throws Exception {
+        Object resolved = webRequest.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (resolved != null) {
+            return resolved;
+        }
+
+        HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
+        AuthenticatedWork authenticatedWork = resolve(findToken(request), request.getParameter("target"));
+        webRequest.setAttribute(ATTRIBUTE, authenticatedWork, RequestAttributes.SCOPE_REQUEST);
+        return authenticatedWork;
+    }
+
+
+
+    //the account of the request's token, for endpoints that are scoped to an account rather than a work.
+    public Account authenticate(HttpServletRequest request) throws AuthenticationFailedException {
+        return authenticate(findToken(request));
+    }
+
+
+
+    public Account authenticate(String token) throws AuthenticationFailedException {
+        try {
+            return AuthenticationController.getByToken(token, authTokenRepository, signedTokenCodec);
+        } catch (Exception e) {
+            throw new AuthenticationFailedException("Failed to match auth token to account");
+        }
+    }
+
+
+
+    public AuthenticatedWork resolve(String token, String target) throws AuthenticationFailedException {
+        //confirm user credentials
+        Account account = authenticate(token);
+
+        //retrieve work, only if owned by the account
+        Integer workId = parseWorkId(target);
+        Work work = workId == null ? null : workRepository.findByIdAndAccountId(workId, account.getId());
+        if (work == null) {
+            Log.create(() -> "Failed to find work " + target + " in account work list.",
+                    "AuthenticatedWorkResolver.resolve()", "info", null);
+            throw new AuthenticationFailedException("unrecognized_work");
+        }
+        return new AuthenticatedWork(account, work);
+    }
+
+
+
+    public static Integer parseWorkId(String target) {
+        if (target == null || !target.startsWith(WORK_RESOURCE_PREFIX)) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(target.substring(WORK_RESOURCE_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+
+
+    private String findToken(HttpServletRequest request) {
+        if (request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if (cookie.getName().equals("token")) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        //only bodies of requests without a token cookie are buffered, see CachedBodyFilter.
+        if (request instanceof CachedBodyRequest cached && cached.getBody().length > 0) {
+            String bodyToken = findBodyToken(cached.getBody());
+            if (bodyToken != null) {
+                return bodyToken;
+            }
+        }
+        return "null";
+    }
+
+
+
+    private static String findBodyToken(byte[] body) {
+        //stream over the top level fields only, skipping nested values, and stop at the token.
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (field.equals("token") && value == JsonToken.VALUE_STRING) {
+                    return parser.getText();
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException e) { //malformed body, left for the handler to reject
+            return null;
+        }
+        return null;
+    }
+}
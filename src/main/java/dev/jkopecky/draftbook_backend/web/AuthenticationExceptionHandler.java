@@ -0,0 +1,20 @@
+package dev.jkopecky.draftbook_backend.web;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+import java.util.HashMap;
+
+@ControllerAdvice
+public class AuthenticationExceptionHandler {
+
+    //same reply the controllers used to build themselves when auth failed.
+    @ExceptionHandler(AuthenticationFailedException.class)
+    public ResponseEntity<HashMap<String, Object>> handleAuthenticationFailed(AuthenticationFailedException e) {
+        HashMap<String, Object> response = new HashMap<>();
+        response.put("error", e.getMessage());
+        return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
+    }
+}
@@ -0,0 +1,8 @@
+package dev.jkopecky.draftbook_backend.web;
+
+public class AuthenticationFailedException extends Exception {
+
+    public AuthenticationFailedException(String message) {
+        super(message);
+    }
+}
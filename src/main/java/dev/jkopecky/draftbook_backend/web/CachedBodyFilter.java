@@ -0,0 +1,45 @@
+package dev.jkopecky.draftbook_backend.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+@Component
+public class CachedBodyFilter extends OncePerRequestFilter {
+    //  Work scoped requests may carry their auth token in the body instead of the cookie, so buffer those bodies
+    //  up front. Requests with a token cookie, which is every browser request and all the large chapter saves,
+    //  are passed through untouched and their body is read once, straight off the stream, by the handler.
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/works/") || request.getContentLengthLong() == 0
+                || hasTokenCookie(request);
+    }
+
+
+
+    static boolean hasTokenCookie(HttpServletRequest request) {
+        if (request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if (cookie.getName().equals("token")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        filterChain.doFilter(new CachedBodyRequest(request), response);
+    }
+}
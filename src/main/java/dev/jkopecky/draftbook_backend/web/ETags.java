@@ -0,0 +1,58 @@
+package dev.jkopecky.draftbook_backend.web;
+
+import dev.jkopecky.draftbook_backend.data.tables.Chapter;
+import dev.jkopecky.draftbook_backend.data.tables.Work;
+
+//entity tags for the read endpoints, built only from version columns so a request can be answered with a 304
+//before anything is read from disk.
+public final class ETags {
+
+    private ETags() {
+    }
+
+
+
+    public static String forWork(Work work) {
+        return "\"w" + work.getId() + "." + work.getVersion() + "\"";
+    }
+
+
+
+    public static String forChapterList(Work work, long chapterVersionSum) {
+        return "\"wc" + work.getId() + "." + work.getVersion() + "." + chapterVersionSum + "\"";
+    }
+
+
+
+    public static String forNoteCategories(Work work, long categoryVersionSum) {
+        return "\"wn" + work.getId() + "." + work.getVersion() + "." + categoryVersionSum + "\"";
+    }
+
+
+
+    public static String forChapter(Chapter chapter) {
+        return "\"c" + chapter.getId() + "." + chapter.getContentVersion() + "\"";
+    }
+
+
+
+    //true if the If-None-Match header names the given tag, or is the wildcard. Weak comparison, as RFC 9110 asks for.
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isEmpty()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*")) {
+                return true;
+            }
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,24 @@
+package dev.jkopecky.draftbook_backend.web;
+
+import dev.jkopecky.draftbook_backend.Log;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+import java.util.HashMap;
+
+@ControllerAdvice
+public class RequestBodyExceptionHandler {
+
+    //a body that is not JSON, or that leaves out a required field, fails while binding the handler's request record.
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<HashMap<String, Object>> handleUnreadableBody(HttpMessageNotReadableException e) {
+        Log.create(() -> "Rejected request body: " + e.getMostSpecificCause().getMessage(),
+                "RequestBodyExceptionHandler.handleUnreadableBody()", "info", null);
+        HashMap<String, Object> response = new HashMap<>();
+        response.put("error", "request_parse");
+        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+    }
+}
@@ -0,0 +1,55 @@
+package dev.jkopecky.draftbook_backend.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    AuthenticatedWorkResolver authenticatedWorkResolver;
+    ObjectMapper objectMapper;
+    public WebConfig(AuthenticatedWorkResolver authenticatedWorkResolver, ObjectMapper objectMapper) {
+        this.authenticatedWorkResolver = authenticatedWorkResolver;
+        this.objectMapper = objectMapper;
+    }
+
+
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(authenticatedWorkResolver);
+    }
+
+
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new UntypedJsonBodyConverter(objectMapper));
+    }
+
+
+
+    //the handlers used to read their body as a String, so clients could post JSON as text/plain (the fetch default)
+    //or with no Content-Type at all. bind those bodies with the shared mapper too. it never writes, replies stay JSON.
+    private static class UntypedJsonBodyConverter extends MappingJackson2HttpMessageConverter {
+
+        UntypedJsonBodyConverter(ObjectMapper objectMapper) {
+            super(objectMapper);
+            setSupportedMediaTypes(List.of(MediaType.TEXT_PLAIN, MediaType.APPLICATION_OCTET_STREAM));
+        }
+
+
+
+        @Override
+        protected boolean canWrite(MediaType mediaType) {
+            return false;
+        }
+    }
+}
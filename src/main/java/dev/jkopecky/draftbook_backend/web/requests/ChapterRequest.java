@@ -0,0 +1,13 @@
+package dev.jkopecky.draftbook_backend.web.requests;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Objects;
+
+//body of the chapter requests that only name a chapter: select, rename and delete.
+public record ChapterRequest(@JsonProperty("chaptername") String chapterName) {
+
+    public ChapterRequest {
+        Objects.requireNonNull(chapterName, "chaptername is required");
+    }
+}
@@ -0,0 +1,15 @@
+package dev.jkopecky.draftbook_backend.web.requests;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Objects;
+
+//body of /api/works/chapters/create. chapternumber may be sent as a number or a numeric string.
+public record CreateChapterRequest(@JsonProperty("chaptername") String chapterName,
+                                   @JsonProperty("chapternumber") Integer chapterNumber) {
+
+    public CreateChapterRequest {
+        Objects.requireNonNull(chapterName, "chaptername is required");
+        Objects.requireNonNull(chapterNumber, "chapternumber is required");
+    }
+}
@@ -0,0 +1,12 @@
+package dev.jkopecky.draftbook_backend.web.requests;
+
+import java.util.Objects;
+
+//body of /api/auth/authenticate and /api/auth/create.
+public record CredentialsRequest(String username, String password) {
+
+    public CredentialsRequest {
+        Objects.requireNonNull(username, "username is required");
+        Objects.requireNonNull(password, "password is required");
+    }
+}
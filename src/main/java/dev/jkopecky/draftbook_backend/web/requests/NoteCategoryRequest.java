@@ -0,0 +1,11 @@
+package dev.jkopecky.draftbook_backend.web.requests;
+
+import java.util.Objects;
+
+//body of the note category requests: create, rename and delete.
+public record NoteCategoryRequest(String noteCategoryName) {
+
+    public NoteCategoryRequest {
+        Objects.requireNonNull(noteCategoryName, "noteCategoryName is required");
+    }
+}
@@ -0,0 +1,12 @@
+package dev.jkopecky.draftbook_backend.web.requests;
+
+import java.util.Objects;
+
+//body of the note requests that name a single note: create, select, save and delete.
+public record NoteRequest(String noteCategoryName, String noteName) {
+
+    public NoteRequest {
+        Objects.requireNonNull(noteCategoryName, "noteCategoryName is required");
+        Objects.requireNonNull(noteName, "noteName is required");
+    }
+}
@@ -0,0 +1,19 @@
+package dev.jkopecky.draftbook_backend.web.requests;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import dev.jkopecky.draftbook_backend.data.TextEdit;
+
+import java.util.List;
+import java.util.Objects;
+
+//body of /api/works/chapters/patch. either list of edits may be left out when that part is unchanged.
+public record PatchChapterRequest(@JsonProperty("chaptername") String chapterName, Long baseVersion,
+                                  List<TextEdit> contentEdits, List<TextEdit> notesEdits) {
+
+    public PatchChapterRequest {
+        Objects.requireNonNull(chapterName, "chaptername is required");
+        Objects.requireNonNull(baseVersion, "baseVersion is required");
+        contentEdits = contentEdits == null ? List.of() : contentEdits;
+        notesEdits = notesEdits == null ? List.of() : notesEdits;
+    }
+}
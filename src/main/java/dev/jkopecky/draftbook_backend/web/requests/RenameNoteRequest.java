@@ -0,0 +1,13 @@
+package dev.jkopecky.draftbook_backend.web.requests;
+
+import java.util.Objects;
+
+//body of /api/works/notes/rename.
+public record RenameNoteRequest(String noteCategoryName, String noteName, String newNoteName) {
+
+    public RenameNoteRequest {
+        Objects.requireNonNull(noteCategoryName, "noteCategoryName is required");
+        Objects.requireNonNull(noteName, "noteName is required");
+        Objects.requireNonNull(newNoteName, "newNoteName is required");
+    }
+}
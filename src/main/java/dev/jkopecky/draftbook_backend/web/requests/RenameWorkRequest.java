@@ -0,0 +1,11 @@
+package dev.jkopecky.draftbook_backend.web.requests;
+
+import java.util.Objects;
+
+//body of /api/works/rename.
+public record RenameWorkRequest(String newName) {
+
+    public RenameWorkRequest {
+        Objects.requireNonNull(newName, "newName is required");
+    }
+}
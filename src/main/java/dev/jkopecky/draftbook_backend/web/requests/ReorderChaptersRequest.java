@@ -0,0 +1,12 @@
+package dev.jkopecky.draftbook_backend.web.requests;
+
+import java.util.List;
+import java.util.Objects;
+
+//body of /api/works/chapters/reorder: the id of every chapter of the work, in the new order.
+public record ReorderChaptersRequest(List<Integer> chapterIds) {
+
+    public ReorderChaptersRequest {
+        Objects.requireNonNull(chapterIds, "chapterIds is required");
+    }
+}
@@ -0,0 +1,18 @@
+package dev.jkopecky.draftbook_backend.web.requests;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Objects;
+
+//body of /api/works/chapters/save.
+//Jackson's streaming parser binds it off the request stream, with no body String or tree in between, and content and
+//notes are decoded once into the Strings the store and word count take. requests that carry their token in the body
+//rather than the cookie are buffered by CachedBodyFilter first.
+public record SaveChapterRequest(@JsonProperty("chaptername") String chapterName, String content, String notes) {
+
+    public SaveChapterRequest {
+        Objects.requireNonNull(chapterName, "chaptername is required");
+        Objects.requireNonNull(content, "content is required");
+        Objects.requireNonNull(notes, "notes is required");
+    }
+}
@@ -0,0 +1,11 @@
+package dev.jkopecky.draftbook_backend.web.requests;
+
+import java.util.Objects;
+
+//body of /api/auth/exists.
+public record UsernameRequest(String username) {
+
+    public UsernameRequest {
+        Objects.requireNonNull(username, "username is required");
+    }
+}
@@ -1,13 +1,34 @@
 package dev.jkopecky.draftbook_backend;
 
+import dev.jkopecky.draftbook_backend.data.tables.Account;
+import dev.jkopecky.draftbook_backend.data.tables.AccountRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 @SpringBootTest
 class DraftbookBackendApplicationTests {
 
+    @Autowired
+    AccountRepository accountRepository;
+    @Autowired
+    MeterRegistry meterRegistry;
+
     @Test
     void contextLoads() {
     }
 
+    @Test
+    void repositoryCallsCountMaterializedRows() {
+        Account.create("metered", "password", accountRepository);
+        Account.getByUsername("metered", accountRepository);
+        Account.getByUsername("nobody", accountRepository);
+
+        assertEquals(1, meterRegistry.get("draftbook.repository.rows")
+                .tag("repository", "AccountRepository").tag("method", "findByUsername").counter().count());
+    }
+
 }
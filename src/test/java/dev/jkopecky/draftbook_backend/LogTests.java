@@ -0,0 +1,144 @@
+package dev.jkopecky.draftbook_backend;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogTests {
+
+    private final Logger logger = Logger.getLogger(Log.class.getName());
+    private final List<LogRecord> records = new CopyOnWriteArrayList<>();
+    private final Handler capture = new Handler() {
+        @Override
+        public void publish(LogRecord record) {
+            records.add(record);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+
+
+    @AfterEach
+    void restore() {
+        logger.removeHandler(capture);
+        logger.setUseParentHandlers(true);
+        Log.configure(Log.DEFAULT_CAPACITY, Log.Overflow.DROP);
+    }
+
+
+
+    @Test
+    void skipsDisabledMessagesWithoutBuildingThem() {
+        AtomicBoolean built = new AtomicBoolean();
+        assertFalse(Log.isEnabled("debug"));
+
+        Log.create(() -> {
+            built.set(true);
+            return "expensive";
+        }, "LogTests", "debug", null);
+        Log.flush();
+
+        assertFalse(built.get());
+    }
+
+
+
+    @Test
+    void publishesOnTheWriterWithTheException() {
+        logger.addHandler(capture);
+        IllegalStateException failure = new IllegalStateException("boom");
+
+        Log.create("it broke", "LogTests.test()", "error", failure);
+        Log.flush();
+
+        assertEquals(1, records.size());
+        assertEquals("Error in LogTests.test() : it broke", records.get(0).getMessage());
+        assertSame(failure, records.get(0).getThrown());
+        assertEquals(Thread.currentThread().threadId(), records.get(0).getLongThreadID());
+    }
+
+
+
+    @Test
+    void dropsInsteadOfBlockingWhenTheBufferIsFull() throws Exception {
+        Log.configure(4, Log.Overflow.DROP);
+        CountDownLatch writerStalled = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        //stall the writer on a message that takes forever to build, then flood the buffer behind it
+        Log.create(() -> {
+            writerStalled.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "slow";
+        }, "LogTests", "error", null);
+        assertTrue(writerStalled.await(5, TimeUnit.SECONDS));
+
+        long droppedBefore = Log.droppedCount();
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            Log.create("storm " + i, "LogTests", "error", null);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(996, Log.droppedCount() - droppedBefore);
+        assertTrue(elapsedMillis < 1000, "logging blocked for " + elapsedMillis + " ms");
+        release.countDown();
+        Log.flush();
+    }
+
+
+
+    @Test
+    void losesNothingWhenTheBufferIsResizedUnderLoad() throws Exception {
+        logger.addHandler(capture);
+        logger.setUseParentHandlers(false); //keep the flood off the console
+        Log.configure(16, Log.Overflow.BLOCK);
+
+        int threads = 4;
+        int perThread = 5000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    Log.create("resize " + i, "LogTests.resize()", "error", null);
+                }
+            }));
+        }
+        for (int i = 0; futures.stream().anyMatch(f -> !f.isDone()); i++) {
+            Log.configure(i % 2 == 0 ? 32 : 16, Log.Overflow.BLOCK);
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        Log.flush();
+
+        assertEquals(threads * perThread, records.stream().filter(r -> r.getMessage().contains("LogTests.resize()")).count());
+    }
+}
@@ -0,0 +1,62 @@
+package dev.jkopecky.draftbook_backend.controllers;
+
+import com.jayway.jsonpath.JsonPath;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class AuthenticationControllerTests {
+    //  Tokens are cached in process once they have been looked up, so these check that a cached token
+    //  stops working as soon as it is replaced or logged out, rather than when its cache entry expires.
+
+    @Autowired
+    MockMvc mockMvc;
+
+
+
+    private String tokenFrom(String endpoint, String username) throws Exception {
+        String body = mockMvc.perform(post(endpoint).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"" + username + "\",\"password\":\"hunter2\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.read(body, "$.token");
+    }
+
+
+
+    @Test
+    void loggingOutDropsTheCachedToken() throws Exception {
+        String token = tokenFrom("/api/auth/create", "auth-" + UUID.randomUUID());
+        mockMvc.perform(get("/api/works/list").cookie(new Cookie("token", token))).andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/auth/logout").cookie(new Cookie("token", token))).andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/works/list").cookie(new Cookie("token", token))).andExpect(status().isUnauthorized());
+    }
+
+
+
+    @Test
+    void authenticatingAgainDropsTheCachedOldToken() throws Exception {
+        String username = "auth-" + UUID.randomUUID();
+        String first = tokenFrom("/api/auth/create", username);
+        mockMvc.perform(get("/api/works/list").cookie(new Cookie("token", first))).andExpect(status().isOk());
+
+        String second = tokenFrom("/api/auth/authenticate", username);
+
+        mockMvc.perform(get("/api/works/list").cookie(new Cookie("token", first))).andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/works/list").cookie(new Cookie("token", second))).andExpect(status().isOk());
+    }
+}
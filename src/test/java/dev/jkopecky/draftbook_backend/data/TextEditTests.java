@@ -0,0 +1,33 @@
+package dev.jkopecky.draftbook_backend.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextEditTests {
+
+    @Test
+    void appliesEditsInOrder() {
+        String base = "<p>It was a dark night.</p>";
+        List<TextEdit> edits = List.of(
+                new TextEdit(12, 4, "stormy"),   //replace "dark"
+                new TextEdit(0, 0, "<h1>I</h1>"), //insert at start, shifting what follows
+                new TextEdit(35, 4, "")          //delete "</p>"
+        );
+
+        assertEquals("<h1>I</h1><p>It was a stormy night.", TextEdit.apply(base, edits));
+    }
+
+
+
+    @Test
+    void rejectsEditsOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> TextEdit.apply("abc", List.of(new TextEdit(2, 2, "x"))));
+        assertThrows(IllegalArgumentException.class, () -> TextEdit.apply("abc", List.of(new TextEdit(-1, 0, "x"))));
+        assertThrows(IllegalArgumentException.class, () -> TextEdit.apply("abc", List.of(new TextEdit(1, Integer.MAX_VALUE, "x"))));
+        assertThrows(IllegalArgumentException.class, () -> TextEdit.apply("abc", List.of(new TextEdit(4, 0, "x"))));
+        assertEquals("abcx", TextEdit.apply("abc", List.of(new TextEdit(3, 0, "x"))));
+    }
+}
@@ -0,0 +1,89 @@
+package dev.jkopecky.draftbook_backend.data;
+
+import dev.jkopecky.draftbook_backend.data.tables.Account;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenCacheTests {
+
+    private static final long NEVER = Long.MAX_VALUE;
+
+    //a clock that only moves when the test moves it.
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+
+
+    private static Account account(int id) {
+        Account account = new Account();
+        account.setId(id);
+        return account;
+    }
+
+
+
+    @Test
+    void entriesExpireAfterTheirLifetime() {
+        TokenCache cache = new TokenCache(10, 60, now::get);
+        Account account = account(1);
+        cache.put("a", account, NEVER);
+
+        now.addAndGet(59_999);
+        assertSame(account, cache.get("a"));
+
+        now.addAndGet(1);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size()); //expired entries are dropped as they are found
+    }
+
+
+
+    @Test
+    void entriesNeverOutliveTheirToken() {
+        TokenCache cache = new TokenCache(10, 60, now::get);
+        cache.put("a", account(1), now.get() + 5_000);
+
+        now.addAndGet(4_999);
+        assertNotNull(cache.get("a"));
+
+        now.addAndGet(1);
+        assertNull(cache.get("a"));
+    }
+
+
+
+    @Test
+    void invalidatedTokensAreForgotten() {
+        TokenCache cache = new TokenCache(10, 60, now::get);
+        cache.put("a", account(1), NEVER);
+        cache.put("b", account(2), NEVER);
+
+        cache.invalidate("a");
+        assertNull(cache.get("a"));
+        assertNotNull(cache.get("b"));
+
+        cache.invalidate("missing"); //no effect on tokens that were never cached
+        assertEquals(1, cache.size());
+    }
+
+
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntryOnceFull() {
+        TokenCache cache = new TokenCache(3, 60, now::get);
+        cache.put("a", account(1), NEVER);
+        cache.put("b", account(2), NEVER);
+        cache.put("c", account(3), NEVER);
+
+        cache.get("a"); //b is now the least recently used
+        cache.put("d", account(4), NEVER);
+
+        assertEquals(3, cache.size());
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertNotNull(cache.get("d"));
+    }
+}
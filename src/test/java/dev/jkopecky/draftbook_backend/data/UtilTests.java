@@ -0,0 +1,79 @@
+package dev.jkopecky.draftbook_backend.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UtilTests {
+
+    //the implementation toInternalResource replaced, kept as the reference its output must match.
+    private static String legacyToInternalResource(String target) {
+        String output = "";
+        for (char c : target.toCharArray()) {
+            if (("" + c).matches("[a-zA-Z]")) {
+                output += ("" + c).toLowerCase();
+            } else if (("" + c).matches("\\s")) {
+                output += "_";
+            }
+        }
+        return output;
+    }
+
+
+
+    @Test
+    void matchesLegacyForEveryChar() {
+        for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+            String single = String.valueOf((char) c);
+            assertEquals(legacyToInternalResource(single), Util.toInternalResource(single), "char " + c);
+            String embedded = "Ab" + (char) c + " z";
+            assertEquals(legacyToInternalResource(embedded), Util.toInternalResource(embedded), "char " + c);
+        }
+    }
+
+
+
+    @Test
+    void matchesLegacyForRandomTitles() {
+        //titles mixing every class of character the normalizer treats differently, surrogate pairs included
+        String[] pieces = {"a", "z", "A", "Z", "q", " ", "\t", "\n", "\u000B", "\f", "\r", "_", "-", "9", "é", "Ö",
+                " ", " ", "İ", "ß", "📖", "\uD83D", "'", ".", "İ", "ı"};
+        Random random = new Random(19);
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder title = new StringBuilder();
+            int length = random.nextInt(40);
+            for (int j = 0; j < length; j++) {
+                title.append(pieces[random.nextInt(pieces.length)]);
+            }
+            String input = title.toString();
+            assertEquals(legacyToInternalResource(input), Util.toInternalResource(input), input);
+            assertEquals(legacyToInternalResource(input), Util.toInternalResource(input), input); //and again from the cache
+        }
+    }
+
+
+
+    @Test
+    void returnsNormalizedNamesAsTheyAre() {
+        String name = "chapterone";
+        assertSame(name, Util.toInternalResource(name));
+        assertEquals("", Util.toInternalResource(""));
+        assertEquals("the_boy_who_lived__part_", Util.toInternalResource("The Boy Who Lived – Part 2"));
+    }
+
+
+
+    @Test
+    void countsWordsBetweenTagsAndReferences() {
+        assertEquals(0, Util.countWords(""));
+        assertEquals(0, Util.countWords("<p><br></p>"));
+        assertEquals(4, Util.countWords("<p>It was a night.</p>"));
+        assertEquals(2, Util.countWords("<p>end</p><p>start</p>"));
+        assertEquals(3, Util.countWords("don't over-think&nbsp;it"));
+        assertEquals(3, Util.countWords("caf\u00e9 \u00fcber 42"));
+        assertEquals(2, Util.countWords("fish & chips"));
+        assertEquals(1, Util.countWords("unclosed <b"));
+    }
+}
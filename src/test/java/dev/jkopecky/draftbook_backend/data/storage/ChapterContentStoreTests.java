@@ -0,0 +1,271 @@
+package dev.jkopecky.draftbook_backend.data.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ChapterContentStoreTests {
+
+    @TempDir
+    Path root;
+
+
+
+    static List<Supplier<ChapterContentStore>> stores() {
+        return List.of(
+                () -> new FileChannelContentStore(),
+                () -> new FileChannelContentStore(FileChannelContentStore.FsyncMode.ALWAYS, 0),
+                () -> new FileChannelContentStore(FileChannelContentStore.FsyncMode.GROUP, 500),
+                InMemoryContentStore::new,
+                () -> new CompressingContentStore(new InMemoryContentStore(), 1, 0),
+                () -> new CachingContentStore(new InMemoryContentStore(), 1024, new SimpleMeterRegistry()),
+                () -> new MeteredContentStore(new InMemoryContentStore(), new SimpleMeterRegistry())
+        );
+    }
+
+
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void roundTripsContent(Supplier<ChapterContentStore> supplier) throws Exception {
+        ChapterContentStore store = supplier.get();
+        Path path = root.resolve("works/1/chapters/chapter_one.txt");
+
+        assertFalse(store.exists(path));
+        store.write(path, "<p>Once upon a time – été 📖</p>");
+        assertTrue(store.exists(path));
+        assertEquals("<p>Once upon a time – été 📖</p>", store.read(path));
+
+        store.write(path, "short"); //overwrites must truncate
+        assertEquals("short", store.read(path));
+
+        store.writeBytes(path, new byte[0]);
+        assertEquals("", store.read(path));
+    }
+
+
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void movesAndDeletes(Supplier<ChapterContentStore> supplier) throws Exception {
+        ChapterContentStore store = supplier.get();
+        Path source = root.resolve("notes/characters/ada.txt");
+        Path target = root.resolve("notes/characters/grace.txt");
+
+        store.write(source, "notes");
+        store.move(source, target);
+        assertFalse(store.exists(source));
+        assertEquals("notes", store.read(target));
+
+        store.delete(target);
+        assertFalse(store.exists(target));
+        assertThrows(NoSuchFileException.class, () -> store.read(target));
+    }
+
+
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void transfersWhatReadReturns(Supplier<ChapterContentStore> supplier) throws Exception {
+        ChapterContentStore store = supplier.get();
+        Path path = root.resolve("works/1/chapters/chapter_streamed.txt");
+
+        for (String content : List.of("", "tiny", "<p>Once upon a time – été 📖</p>".repeat(5_000))) {
+            store.write(path, content);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            store.transferTo(path, out);
+            assertEquals(content, out.toString(StandardCharsets.UTF_8));
+        }
+        assertThrows(NoSuchFileException.class, () -> store.transferTo(root.resolve("missing.txt"), OutputStream.nullOutputStream()));
+    }
+
+
+
+    @Test
+    void savingKeepsTheFilesPermissions() throws Exception {
+        assumeTrue(root.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        ChapterContentStore store = new FileChannelContentStore();
+        Path path = root.resolve("chapter_shared.txt");
+
+        store.write(path, "first");
+        //a new file gets the umask's mode like any other, not the owner only mode of a temp file
+        Path plain = Files.createFile(root.resolve("plain.txt"));
+        assertEquals(Files.getPosixFilePermissions(plain), Files.getPosixFilePermissions(path));
+
+        Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-r-----"));
+        store.write(path, "second");
+        assertEquals(PosixFilePermissions.fromString("rw-r-----"), Files.getPosixFilePermissions(path));
+        assertEquals("second", store.read(path));
+    }
+
+
+
+    @Test
+    void streamingAllocatesFarLessThanTheJsonMapPath() throws Exception {
+        //heap allocation of one 4MB chapter read, as select does it versus as the stream endpoint does it.
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        ChapterContentStore store = new FileChannelContentStore();
+        Path path = root.resolve("chapter_large.txt");
+        store.write(path, "<p>It was a dark and stormy night.</p>\n".repeat(4 * 1024 * 1024 / 40));
+        ObjectMapper mapper = new ObjectMapper();
+        long threadId = Thread.currentThread().threadId();
+
+        long jsonBytes = Long.MAX_VALUE;
+        long streamedBytes = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) { //the best of a few rounds, so warm-up allocations do not count
+            long before = threads.getThreadAllocatedBytes(threadId);
+            HashMap<String, Object> response = new HashMap<>();
+            response.put("content", store.read(path));
+            mapper.writeValue(OutputStream.nullOutputStream(), response);
+            jsonBytes = Math.min(jsonBytes, threads.getThreadAllocatedBytes(threadId) - before);
+
+            before = threads.getThreadAllocatedBytes(threadId);
+            store.transferTo(path, OutputStream.nullOutputStream());
+            streamedBytes = Math.min(streamedBytes, threads.getThreadAllocatedBytes(threadId) - before);
+        }
+
+        assertTrue(jsonBytes > 4 * 1024 * 1024, "json path allocated " + jsonBytes);
+        assertTrue(streamedBytes < jsonBytes / 20, "streamed " + streamedBytes + " bytes against " + jsonBytes);
+    }
+
+
+
+    @Test
+    void meteredStoreRecordsFileIo() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MeteredContentStore store = new MeteredContentStore(new FileChannelContentStore(), registry);
+        Path path = root.resolve("chapter_metered.txt");
+
+        store.writeBytes(path, new byte[300]);
+        store.readBytes(path);
+        store.transferTo(path, OutputStream.nullOutputStream());
+
+        for (String operation : List.of("read", "write", "transfer")) {
+            assertEquals(1, registry.get("draftbook.content.io").tag("op", operation).timer().count());
+            assertEquals(300, registry.get("draftbook.content.io.bytes").tag("op", operation).summary().totalAmount());
+        }
+    }
+
+
+
+    @Test
+    void cacheServesRepeatReadsWithinBudget() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CachingContentStore store = new CachingContentStore(new FileChannelContentStore(), 100, registry);
+        Path first = root.resolve("first.txt");
+        Path second = root.resolve("second.txt");
+
+        store.writeBytes(first, new byte[60]);
+        store.readBytes(first);
+        assertEquals(1, registry.counter("draftbook.content.cache.hits").count());
+
+        store.writeBytes(second, new byte[60]); //over budget, evicts the least recently used entry
+        assertEquals(60, store.getCachedBytes());
+        assertEquals(1, registry.counter("draftbook.content.cache.evictions").count());
+
+        store.readBytes(first);
+        assertEquals(1, registry.counter("draftbook.content.cache.misses").count());
+    }
+
+
+
+    @Test
+    void writeBehindCoalescesSavesAndFlushesOnClose() throws Exception {
+        InMemoryContentStore disk = new InMemoryContentStore();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        WriteBehindContentStore store = new WriteBehindContentStore(disk, 3_600_000, registry);
+        Path path = root.resolve("chapter_autosaved.txt");
+
+        for (int i = 1; i <= 5; i++) {
+            store.write(path, "draft " + i);
+        }
+        assertEquals(1, store.pendingCount());
+        assertEquals("draft 5", store.read(path)); //reads see the latest save before it reaches disk
+        assertFalse(disk.exists(path));
+
+        store.close();
+        assertEquals("draft 5", disk.read(path));
+        assertEquals(1, registry.counter("draftbook.content.writebehind.flushed").count());
+        assertEquals(4, registry.counter("draftbook.content.writebehind.coalesced").count());
+    }
+
+
+
+    @Test
+    void groupCommitLandsEveryConcurrentWrite() throws Exception {
+        FileChannelContentStore store = new FileChannelContentStore(FileChannelContentStore.FsyncMode.GROUP, 2000);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            int writer = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 20; i++) {
+                    store.write(root.resolve("chapter_" + writer + ".txt"), "save " + i + " of writer " + writer);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        store.close();
+
+        for (int t = 0; t < 16; t++) {
+            assertEquals("save 19 of writer " + t, store.read(root.resolve("chapter_" + t + ".txt")));
+        }
+        try (Stream<Path> files = Files.list(root)) {
+            assertEquals(16, files.count()); //no temp files left behind
+        }
+    }
+
+
+
+    @Test
+    void compressionReadsLegacyPlainFilesAndMigratesThem() throws Exception {
+        FileChannelContentStore disk = new FileChannelContentStore();
+        CompressingContentStore store = new CompressingContentStore(disk, 1, 64);
+        Path legacy = root.resolve("chapter_legacy.txt");
+        String manuscript = "<p>All happy families are alike; each unhappy family is unhappy in its own way.</p>\n".repeat(200);
+
+        disk.write(legacy, manuscript); //written before compression was enabled
+        assertEquals(manuscript, store.read(legacy));
+
+        long saved = store.migrate(legacy);
+        assertTrue(saved > manuscript.length() / 2);
+        assertTrue(CompressingContentStore.isCompressed(disk.readBytes(legacy)));
+        assertEquals(manuscript, store.read(legacy));
+        assertEquals(0, store.migrate(legacy)); //already compressed
+
+        store.write(legacy, "tiny"); //below the minimum, stays plain
+        assertFalse(CompressingContentStore.isCompressed(disk.readBytes(legacy)));
+        assertEquals("tiny", store.read(legacy));
+    }
+}
@@ -0,0 +1,35 @@
+package dev.jkopecky.draftbook_backend.data.tables;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthTokenRepositoryTests extends RepositoryTestSupport {
+
+    @Autowired
+    AuthTokenRepository authTokenRepository;
+
+
+
+    @Test
+    void savesFindsAndDeletesATokenByValue() {
+        Account account = persistAccount("tokened");
+        AuthToken token = new AuthToken(account, authTokenRepository);
+        flushAndClear();
+
+        AuthToken found = authTokenRepository.findByValue(token.getValue());
+        assertNotNull(found);
+        assertEquals(account.getId(), found.getAccount().getId());
+        assertFalse(found.isExpired());
+        assertEquals(List.of(), authTokenRepository.findExpiredIds(Instant.now(), PageRequest.of(0, 10)));
+
+        authTokenRepository.delete(found);
+        entityManager.flush();
+        assertNull(authTokenRepository.findByValue(token.getValue()));
+    }
+}
@@ -0,0 +1,108 @@
+package dev.jkopecky.draftbook_backend.data.tables;
+
+import dev.jkopecky.draftbook_backend.data.AuthTokenSweeper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthTokenSweeperTests extends RepositoryTestSupport {
+
+    private static final int BATCH_SIZE = 5;
+
+    @Autowired
+    AuthTokenRepository authTokenRepository;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    List<String> liveTokens = new ArrayList<>();
+
+
+
+    //12 expired tokens, which take three batches of 5, including two from before expiry was tracked; and 4 live ones.
+    @BeforeEach
+    void seedTokens() {
+        Account account = persistAccount("swept");
+        Instant now = Instant.now();
+        for (int i = 0; i < 10; i++) {
+            persistToken(account, "expired-" + i, now.minusSeconds(60 + i));
+        }
+        persistToken(account, "untracked-0", null);
+        persistToken(account, "untracked-1", null);
+        for (int i = 0; i < 4; i++) {
+            liveTokens.add(persistToken(account, "live-" + i, now.plusSeconds(3600)).getValue());
+        }
+        flushAndClear();
+    }
+
+
+
+    private AuthToken persistToken(Account account, String value, Instant expiresAt) {
+        AuthToken token = new AuthToken();
+        token.setAccount(account);
+        token.setValue(value);
+        token.setIssuedAt(Instant.now());
+        token.setExpiresAt(expiresAt);
+        entityManager.persist(token);
+        return token;
+    }
+
+
+
+    private List<String> remainingTokens() {
+        entityManager.clear();
+        return entityManager.createQuery("select t.value from AuthToken t order by t.value", String.class).getResultList();
+    }
+
+
+
+    private double purgedCount() {
+        return meterRegistry.get("draftbook.auth.tokens.purged").counter().count();
+    }
+
+
+
+    private long sweepCount() {
+        return meterRegistry.get("draftbook.auth.tokens.sweep").timer().count();
+    }
+
+
+
+    @Test
+    void sweepsEveryExpiredTokenAcrossBatches() {
+        AuthTokenSweeper sweeper = new AuthTokenSweeper(authTokenRepository, meterRegistry, BATCH_SIZE, 100);
+
+        sweeper.sweep();
+
+        assertEquals(liveTokens, remainingTokens());
+        assertEquals(12, purgedCount());
+        assertEquals(1, sweepCount());
+
+        //nothing left to purge, the counter stays put but the sweep is still timed.
+        sweeper.sweep();
+        assertEquals(liveTokens, remainingTokens());
+        assertEquals(12, purgedCount());
+        assertEquals(2, sweepCount());
+    }
+
+
+
+    @Test
+    void leavesWhatIsPastTheBatchCapForTheNextSweep() {
+        AuthTokenSweeper sweeper = new AuthTokenSweeper(authTokenRepository, meterRegistry, BATCH_SIZE, 2);
+
+        sweeper.sweep();
+        assertEquals(liveTokens.size() + 2, remainingTokens().size());
+        assertEquals(10, purgedCount());
+
+        sweeper.sweep();
+        assertEquals(liveTokens, remainingTokens());
+        assertEquals(12, purgedCount());
+        assertEquals(2, sweepCount());
+    }
+}
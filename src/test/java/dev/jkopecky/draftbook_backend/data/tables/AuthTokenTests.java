@@ -0,0 +1,94 @@
+package dev.jkopecky.draftbook_backend.data.tables;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AuthTokenTests {
+
+    private static final int THREADS = 32;
+    private static final int TOKENS_PER_THREAD = 2000;
+
+
+
+    //stands in for the unique index on the value column.
+    private AuthTokenRepository uniqueValueRepository(Set<String> stored) {
+        AuthTokenRepository repository = mock(AuthTokenRepository.class);
+        when(repository.save(any(AuthToken.class))).thenAnswer(invocation -> {
+            AuthToken token = invocation.getArgument(0);
+            if (!stored.add(token.getValue())) {
+                throw new DataIntegrityViolationException("Duplicate entry for key 'idx_auth_token_value'");
+            }
+            return token;
+        });
+        return repository;
+    }
+
+
+
+    @Test
+    void issuesUniqueTokensConcurrently() throws Exception {
+        Set<String> stored = ConcurrentHashMap.newKeySet();
+        AuthTokenRepository repository = uniqueValueRepository(stored);
+        Account account = new Account();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < TOKENS_PER_THREAD; i++) {
+                    new AuthToken(account, repository);
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(THREADS * TOKENS_PER_THREAD, stored.size());
+    }
+
+
+
+    @Test
+    void retriesOnlyOnConstraintViolation() {
+        AtomicInteger attempts = new AtomicInteger();
+        AuthTokenRepository repository = mock(AuthTokenRepository.class);
+        when(repository.save(any(AuthToken.class))).thenAnswer(invocation -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new DataIntegrityViolationException("Duplicate entry for key 'idx_auth_token_value'");
+            }
+            return invocation.getArgument(0);
+        });
+
+        AuthToken token = new AuthToken(new Account(), repository);
+        assertEquals(2, attempts.get());
+        assertEquals(43, token.getValue().length());
+    }
+
+
+
+    @Test
+    void failsAfterPermittedAttempts() {
+        AuthTokenRepository repository = mock(AuthTokenRepository.class);
+        when(repository.save(any(AuthToken.class))).thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+
+        assertThrows(IllegalStateException.class, () -> new AuthToken(new Account(), repository));
+    }
+}
@@ -0,0 +1,105 @@
+package dev.jkopecky.draftbook_backend.data.tables;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.jkopecky.draftbook_backend.data.storage.InMemoryContentStore;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@AutoConfigureJson
+class ChapterRepositoryTests extends RepositoryTestSupport {
+
+    @Autowired
+    ChapterRepository chapterRepository;
+    @Autowired
+    ObjectMapper objectMapper;
+    @TempDir
+    Path root;
+
+
+
+    //a work whose chapters have the given ordering keys, titled "Chapter A", "Chapter B", ... in that order.
+    private Work persistWorkWithChapters(String username, int... numbers) {
+        Work work = persistWork(persistAccount(username), "Listed", root + "/private/", Instant.now());
+        for (int i = numbers.length - 1; i >= 0; i--) {
+            persistChapter(work, "Chapter " + (char) ('A' + i), numbers[i], 0);
+        }
+        flushAndClear();
+        return work;
+    }
+
+
+
+    private List<String> titles(Work work) {
+        return work.getChapterSummaries(chapterRepository).stream().map(ChapterSummary::title).toList();
+    }
+
+
+
+    @Test
+    void listsChapterSummariesInOrderWithoutTheWorkOrAccount() throws Exception {
+        Work work = persistWorkWithChapters("lister", 1024, 2048, 3072);
+
+        Statistics statistics = clearedStatistics();
+
+        List<ChapterSummary> chapters = work.getChapterSummaries(chapterRepository);
+        String json = objectMapper.writeValueAsString(chapters);
+
+        assertEquals(List.of("Chapter A", "Chapter B", "Chapter C"), chapters.stream().map(ChapterSummary::title).toList());
+        assertEquals(List.of(1L, 2L, 3L), chapters.stream().map(ChapterSummary::number).toList());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertFalse(json.contains("hunter2") || json.contains("/private/") || json.contains("\"work\""), json);
+        assertTrue(json.contains("\"updatedAt\":\""), json);
+    }
+
+
+
+    @Test
+    void appliesAWholeOrderInOneStatementAndBumpsTheWork() {
+        Work work = persistWorkWithChapters("reorderer", 1024, 2048, 3072, 4096, 5120);
+        List<Integer> reversed = work.getChapterSummaries(chapterRepository).stream().map(ChapterSummary::id).toList().reversed();
+        long version = work.getVersion();
+
+        Statistics statistics = clearedStatistics();
+        work.applyChapterOrder(reversed, chapterRepository);
+
+        assertEquals(2, statistics.getPrepareStatementCount()); //the chapters, then the work's version
+        entityManager.clear();
+        assertEquals(List.of("Chapter E", "Chapter D", "Chapter C", "Chapter B", "Chapter A"), titles(work));
+        assertEquals(version + 1, entityManager.find(Work.class, work.getId()).getVersion());
+    }
+
+
+
+    @Test
+    void insertsBetweenNeighboursWithoutRenumberingThem() throws Exception {
+        InMemoryContentStore store = new InMemoryContentStore();
+
+        //older works have dense numbers with no room between them, the first insert respaces the work once
+        Work work = persistWorkWithChapters("inserter", 1, 2, 3);
+        work.createChapter("Interlude", 2, chapterRepository, store);
+        flushAndClear();
+        assertEquals(List.of("Chapter A", "Interlude", "Chapter B", "Chapter C"), titles(work));
+
+        //after that, inserting only adds the new row
+        List<Integer> before = work.getChapters(chapterRepository).stream().map(Chapter::getNumber).toList();
+        entityManager.clear();
+        work.createChapter("Prologue", 1, chapterRepository, store);
+        work.createChapter("Aside", 3, chapterRepository, store);
+        flushAndClear();
+
+        assertEquals(List.of("Prologue", "Chapter A", "Aside", "Interlude", "Chapter B", "Chapter C"), titles(work));
+        List<Chapter> after = work.getChapters(chapterRepository);
+        assertEquals(before, after.stream().filter(c -> !c.getTitle().equals("Prologue") && !c.getTitle().equals("Aside"))
+                .map(Chapter::getNumber).toList());
+    }
+}
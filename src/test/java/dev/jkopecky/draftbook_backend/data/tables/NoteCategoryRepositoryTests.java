@@ -0,0 +1,105 @@
+package dev.jkopecky.draftbook_backend.data.tables;
+
+import dev.jkopecky.draftbook_backend.data.storage.InMemoryContentStore;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NoteCategoryRepositoryTests extends RepositoryTestSupport {
+
+    private static final int CATEGORIES = 20;
+    private static final int NOTES_PER_CATEGORY = 5;
+
+    @Autowired
+    NoteCategoryRepository noteCategoryRepository;
+
+
+
+    private Work persistWorkWithNotes(String username) {
+        Work work = persistWork(persistAccount(username), "Work of " + username, null, Instant.now());
+
+        for (int i = 0; i < CATEGORIES; i++) {
+            NoteCategory category = new NoteCategory();
+            category.setWork(work);
+            category.setCategoryName("category " + i);
+            List<String> notes = new ArrayList<>();
+            for (int n = 0; n < NOTES_PER_CATEGORY; n++) {
+                notes.add("note " + n);
+            }
+            category.setNotes(notes);
+            entityManager.persist(category);
+        }
+        return work;
+    }
+
+
+
+    @Test
+    void loadsCategoriesAndNotesInOneStatement() {
+        Work work = persistWorkWithNotes("reader");
+        persistWorkWithNotes("other");
+        flushAndClear();
+
+        Statistics statistics = clearedStatistics();
+
+        List<NoteCategory> categories = noteCategoryRepository.findByWorkIdWithNotes(work.getId());
+        int notes = 0;
+        for (NoteCategory category : categories) {
+            notes += category.getNotes().size();
+            category.getWork().getAccount().getUsername();
+        }
+
+        assertEquals(CATEGORIES, categories.size());
+        assertEquals(CATEGORIES * NOTES_PER_CATEGORY, notes);
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+
+
+    @Test
+    void countsEveryConcurrentChangeToACategory() throws Exception {
+        Work work = persistWorkWithNotes("noter");
+        flushAndClear();
+        //two requests each load the category, as NoteController does, then add a note to their own copy
+        NoteCategory first = noteCategoryRepository.findByWorkIdWithNotes(work.getId()).getFirst();
+        entityManager.clear();
+        NoteCategory second = noteCategoryRepository.findByWorkIdWithNotes(work.getId()).getFirst();
+        entityManager.clear();
+        Integer id = first.getId();
+        long version = first.getVersion();
+        InMemoryContentStore store = new InMemoryContentStore();
+        first.addNote("first", "", noteCategoryRepository, store);
+        second.addNote("second", "", noteCategoryRepository, store);
+        flushAndClear();
+
+        assertEquals(version + 2, noteCategoryRepository.findById(id).orElseThrow().getVersion());
+    }
+
+
+
+    @Test
+    void summarizesCategoriesInOneStatementIncludingEmptyOnes() {
+        Work work = persistWorkWithNotes("summarized");
+        NoteCategory empty = new NoteCategory();
+        empty.setWork(work);
+        empty.setCategoryName("empty");
+        empty.setNotes(new ArrayList<>());
+        entityManager.persist(empty);
+        flushAndClear();
+
+        Statistics statistics = clearedStatistics();
+
+        List<NoteCategorySummary> categories = NoteCategory.getWorkNoteCategorySummaries(work, noteCategoryRepository);
+
+        assertEquals(CATEGORIES + 1, categories.size());
+        assertEquals(CATEGORIES * NOTES_PER_CATEGORY, categories.stream().mapToInt(c -> c.notes().size()).sum());
+        assertEquals(List.of(), categories.get(CATEGORIES).notes());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,74 @@
+package dev.jkopecky.draftbook_backend.data.tables;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.Instant;
+
+//shared setup for the repository tests: an in-memory database with statement statistics on,
+//and factories for the Account -> Work -> Chapter rows they build on.
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+abstract class RepositoryTestSupport {
+
+    @Autowired
+    EntityManager entityManager;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+
+
+    Account persistAccount(String username) {
+        Account account = new Account();
+        account.setUsername(username);
+        account.setPassword("hunter2");
+        entityManager.persist(account);
+        return account;
+    }
+
+
+
+    Work persistWork(Account account, String title, String path, Instant updatedAt) {
+        Work work = new Work();
+        work.setTitle(title);
+        work.setAccount(account);
+        work.setPath(path);
+        work.setUpdatedAt(updatedAt);
+        entityManager.persist(work);
+        return work;
+    }
+
+
+
+    Chapter persistChapter(Work work, String title, int number, int wordCount) {
+        Chapter chapter = new Chapter();
+        chapter.setTitle(title);
+        chapter.setNumber(number);
+        chapter.setWork(work);
+        chapter.buildPath();
+        chapter.setWordCount(wordCount);
+        chapter.setUpdatedAt(Instant.now());
+        entityManager.persist(chapter);
+        return chapter;
+    }
+
+
+
+    //writes out everything persisted so far and detaches it, so what follows reads from the database.
+    void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+
+
+    //statistics counted from now on.
+    Statistics clearedStatistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+}
@@ -0,0 +1,103 @@
+package dev.jkopecky.draftbook_backend.data.tables;
+
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkRepositoryTests extends RepositoryTestSupport {
+
+    @Autowired
+    WorkRepository workRepository;
+    @TempDir
+    Path root;
+
+
+
+    private Account persistAccountWithWorks(String username, int works) {
+        Account account = persistAccount(username);
+        Instant base = Instant.parse("2026-01-01T00:00:00Z");
+        for (int i = 0; i < works; i++) {
+            //groups of three share a timestamp, so the id has to break ties
+            Work work = persistWork(account, username + " " + i, null, base.plusSeconds(i / 3));
+            for (int n = 1; n <= i % 4; n++) {
+                persistChapter(work, "Chapter " + n, n, 100 * n);
+            }
+        }
+        return account;
+    }
+
+
+
+    @Test
+    void pagesThroughEveryWorkOnceInUpdatedOrder() {
+        Account account = persistAccountWithWorks("pager", 50);
+        persistAccountWithWorks("neighbour", 10);
+        flushAndClear();
+
+        Statistics statistics = clearedStatistics();
+        List<WorkListing> seen = new ArrayList<>();
+        WorkListing.Cursor cursor = null;
+        while (true) {
+            statistics.clear();
+            List<WorkListing> page = Work.listForAccount(account, cursor, 7, workRepository);
+            assertEquals(1, statistics.getPrepareStatementCount());
+            seen.addAll(page);
+            if (page.size() < 7) {
+                break;
+            }
+            cursor = WorkListing.Cursor.decode(page.getLast().cursor().encode());
+        }
+
+        assertEquals(50, seen.size());
+        assertEquals(50, seen.stream().map(WorkListing::id).distinct().count());
+        assertTrue(seen.stream().allMatch(w -> w.title().startsWith("pager ")));
+        assertEquals(seen.stream().sorted(Comparator.comparing(WorkListing::updatedAt).thenComparing(WorkListing::id).reversed()).toList(), seen);
+
+        WorkListing third = seen.stream().filter(w -> w.title().equals("pager 3")).findFirst().orElseThrow();
+        assertEquals(3, third.chapterCount());
+        assertEquals(600, third.wordCount());
+        WorkListing empty = seen.stream().filter(w -> w.title().equals("pager 4")).findFirst().orElseThrow();
+        assertEquals(0, empty.chapterCount());
+        assertEquals(0, empty.wordCount());
+    }
+
+
+
+    @Test
+    void renamingAStaleCopyNeverMovesTheVersionBackwards() {
+        Work work = persistWork(persistAccount("renamer"), "Draft", root + "/", Instant.parse("2026-01-01T00:00:00Z"));
+        flushAndClear();
+        Work stale = workRepository.findById(work.getId()).orElseThrow();
+        entityManager.detach(stale);
+
+        //another request changes the work in between
+        Instant bumped = Instant.parse("2026-02-01T00:00:00Z");
+        workRepository.incrementVersion(work.getId(), bumped);
+        workRepository.incrementVersion(work.getId(), bumped);
+
+        assertTrue(stale.changeName("Final", workRepository));
+        flushAndClear();
+
+        Work stored = workRepository.findById(work.getId()).orElseThrow();
+        assertEquals("Final", stored.getTitle());
+        assertEquals(2, stored.getVersion());
+        assertEquals(bumped, stored.getUpdatedAt());
+    }
+
+
+
+    @Test
+    void rejectsCursorsItDidNotProduce() {
+        assertNull(WorkListing.Cursor.decode("not a cursor"));
+        assertNull(WorkListing.Cursor.decode("bm9fc2VwYXJhdG9y"));
+    }
+}
@@ -0,0 +1,170 @@
+package dev.jkopecky.draftbook_backend.web;
+
+import dev.jkopecky.draftbook_backend.data.tables.Account;
+import dev.jkopecky.draftbook_backend.data.tables.AccountRepository;
+import dev.jkopecky.draftbook_backend.data.tables.AuthToken;
+import dev.jkopecky.draftbook_backend.data.tables.AuthTokenRepository;
+import dev.jkopecky.draftbook_backend.data.tables.Work;
+import dev.jkopecky.draftbook_backend.data.tables.WorkRepository;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class AuthenticatedWorkResolverTests {
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    AccountRepository accountRepository;
+    @Autowired
+    WorkRepository workRepository;
+    @Autowired
+    AuthTokenRepository authTokenRepository;
+
+    String ownerToken;
+    String otherToken;
+    Work ownersWork;
+    Work othersWork;
+
+
+
+    //two accounts with a work and a token each; names are random as the context, and its database, is shared.
+    @BeforeEach
+    void seedTwoAccounts() {
+        Account owner = saveAccount();
+        Account other = saveAccount();
+        ownerToken = new AuthToken(owner, authTokenRepository).getValue();
+        otherToken = new AuthToken(other, authTokenRepository).getValue();
+        ownersWork = saveWork(owner, "owners work");
+        othersWork = saveWork(other, "others work");
+    }
+
+
+
+    private Account saveAccount() {
+        Account account = new Account();
+        account.setUsername("resolver-" + UUID.randomUUID());
+        account.setPassword("hunter2");
+        return accountRepository.save(account);
+    }
+
+
+
+    private Work saveWork(Account account, String title) {
+        Work work = new Work();
+        work.setTitle(title);
+        work.setAccount(account);
+        work.setPath("unused/" + UUID.randomUUID());
+        work.setUpdatedAt(Instant.now());
+        return workRepository.save(work);
+    }
+
+
+
+    @Test
+    void resolvesAWorkOwnedByTheCookiesAccount() throws Exception {
+        mockMvc.perform(get("/api/works/work").param("target", ownersWork.toResource())
+                        .cookie(new Cookie("token", ownerToken)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.work.title").value("owners work"));
+    }
+
+
+
+    @Test
+    void rejectsAnotherAccountsWork() throws Exception {
+        mockMvc.perform(get("/api/works/work").param("target", othersWork.toResource())
+                        .cookie(new Cookie("token", ownerToken)))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.error").value("unrecognized_work"));
+    }
+
+
+
+    @Test
+    void rejectsMalformedTargets() throws Exception {
+        for (String target : new String[] {"workid_abc", "workid_", "nope", ""}) {
+            mockMvc.perform(get("/api/works/work").param("target", target)
+                            .cookie(new Cookie("token", ownerToken)))
+                    .andExpect(status().isUnauthorized())
+                    .andExpect(jsonPath("$.error").value("unrecognized_work"));
+        }
+        mockMvc.perform(get("/api/works/work").cookie(new Cookie("token", ownerToken)))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.error").value("unrecognized_work"));
+    }
+
+
+
+    @Test
+    void rejectsRequestsWithoutAValidToken() throws Exception {
+        mockMvc.perform(get("/api/works/work").param("target", ownersWork.toResource()))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.error").value("Failed to match auth token to account"));
+        mockMvc.perform(get("/api/works/work").param("target", ownersWork.toResource())
+                        .cookie(new Cookie("token", "not-a-token")))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.error").value("Failed to match auth token to account"));
+    }
+
+
+
+    @Test
+    void acceptsATokenInTheBodyWhenNoCookieIsSent() throws Exception {
+        //authenticated, so the request gets as far as looking for the (missing) chapter.
+        mockMvc.perform(post("/api/works/chapters/select").param("target", ownersWork.toResource())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"chaptername\":\"missing\",\"token\":\"" + ownerToken + "\"}"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("unrecognized_chapter"));
+    }
+
+
+
+    @Test
+    void prefersTheCookieOverABodyToken() throws Exception {
+        String body = "{\"chaptername\":\"missing\",\"token\":\"" + otherToken + "\"}";
+
+        //the cookie's account owns the work, so the body's account is never consulted.
+        mockMvc.perform(post("/api/works/chapters/select").param("target", ownersWork.toResource())
+                        .cookie(new Cookie("token", ownerToken))
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("unrecognized_chapter"));
+
+        //and the body's account owning the work does not help a cookie for another account.
+        mockMvc.perform(post("/api/works/chapters/select").param("target", othersWork.toResource())
+                        .cookie(new Cookie("token", ownerToken))
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.error").value("unrecognized_work"));
+    }
+
+
+
+    @Test
+    void listsWorksThroughTheSameTokenLookup() throws Exception {
+        mockMvc.perform(get("/api/works/list").cookie(new Cookie("token", ownerToken)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.works.length()").value(1))
+                .andExpect(jsonPath("$.works[0].title").value("owners work"));
+        mockMvc.perform(get("/api/works/list"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.error").value("Failed to match auth token to account"));
+    }
+}
@@ -0,0 +1,36 @@
+package dev.jkopecky.draftbook_backend.web;
+
+import dev.jkopecky.draftbook_backend.data.tables.Chapter;
+import dev.jkopecky.draftbook_backend.data.tables.Work;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ETagsTests {
+
+    @Test
+    void tagChangesWithVersion() {
+        Work work = new Work();
+        work.setId(7);
+        String before = ETags.forWork(work);
+        work.setVersion(1);
+        assertNotEquals(before, ETags.forWork(work));
+        assertNotEquals(ETags.forChapterList(work, 3), ETags.forChapterList(work, 4));
+
+        Chapter chapter = new Chapter();
+        chapter.setId(7);
+        assertNotEquals(ETags.forWork(work), ETags.forChapter(chapter));
+    }
+
+
+
+    @Test
+    void matchesIfNoneMatchLists() {
+        String etag = "\"c4.2\"";
+        assertTrue(ETags.matches(etag, etag));
+        assertTrue(ETags.matches("\"c4.1\", W/\"c4.2\"", etag));
+        assertTrue(ETags.matches("*", etag));
+        assertFalse(ETags.matches("\"c4.1\"", etag));
+        assertFalse(ETags.matches(null, etag));
+    }
+}
@@ -0,0 +1,51 @@
+package dev.jkopecky.draftbook_backend.web;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class RequestBindingTests {
+
+    @Autowired
+    MockMvc mockMvc;
+
+
+
+    @Test
+    void bindsJsonBodiesIgnoringFieldsTheRecordDoesNotName() throws Exception {
+        mockMvc.perform(post("/api/auth/exists").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"nobody\",\"token\":\"ignored\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.exists").value(false));
+    }
+
+
+
+    @Test
+    void stillAcceptsJsonPostedAsPlainText() throws Exception {
+        mockMvc.perform(post("/api/auth/exists").contentType(MediaType.TEXT_PLAIN).content("{\"username\":\"nobody\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.exists").value(false));
+    }
+
+
+
+    @Test
+    void rejectsMalformedOrIncompleteBodies() throws Exception {
+        mockMvc.perform(post("/api/auth/exists").contentType(MediaType.APPLICATION_JSON).content("{\"username\":"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("request_parse"));
+        mockMvc.perform(post("/api/auth/authenticate").contentType(MediaType.APPLICATION_JSON).content("{\"username\":\"someone\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("request_parse"));
+    }
+}